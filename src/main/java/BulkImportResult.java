@@ -0,0 +1,88 @@
+// Per-batch and total row counts reported by StudentDAO.addStudents
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class BulkImportResult {
+    private final List<Batch> batches = new ArrayList<>();
+    private int inserted;
+    private int updated;
+    private int skipped;
+    private int failed;
+
+    synchronized void addBatch(Batch batch) {
+        batches.add(batch);
+        inserted += batch.getInserted();
+        updated += batch.getUpdated();
+        skipped += batch.getSkipped();
+        failed += batch.getFailed();
+    }
+
+    // Lets several import workers report into one result
+    synchronized void merge(BulkImportResult other) {
+        for (Batch batch : other.getBatches()) {
+            addBatch(batch);
+        }
+    }
+
+    public List<Batch> getBatches() {
+        return Collections.unmodifiableList(batches);
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkImportResult{batches=" + batches.size() + ", inserted=" + inserted + ", updated=" + updated +
+                ", skipped=" + skipped + ", failed=" + failed + "}";
+    }
+
+    static class Batch {
+        private final int inserted;
+        private final int updated;
+        private final int skipped;
+        private final int failed;
+
+        Batch(int inserted, int updated, int skipped, int failed) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.skipped = skipped;
+            this.failed = failed;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "Batch{inserted=" + inserted + ", updated=" + updated + ", skipped=" + skipped + ", failed=" + failed + "}";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// StudentDAO with a read-through cache in front of getStudentById
+import java.util.Iterator;
+
+class CachedStudentDAO extends StudentDAO {
+    private static final int TARGETED_INVALIDATION_LIMIT = 4096;
+    private final StudentCache cache;
+
+    public CachedStudentDAO(StudentCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Student getStudentById(int id) {
+        return cache.get(id, super::getStudentById);
+    }
+
+    @Override
+    public boolean addStudent(Student student) {
+        try {
+            return super.addStudent(student);
+        } finally {
+            cache.invalidate(student.getId());
+        }
+    }
+
+    // Small batches (such as write-behind flushes) invalidate just their own IDs; large imports clear the cache
+    @Override
+    public BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert) {
+        int[] ids = new int[TARGETED_INVALIDATION_LIMIT];
+        int[] count = new int[1];
+        Iterator<Student> tracked = new Iterator<Student>() {
+            @Override
+            public boolean hasNext() {
+                return students.hasNext();
+            }
+
+            @Override
+            public Student next() {
+                Student student = students.next();
+                if (count[0] < ids.length) {
+                    ids[count[0]] = student.getId();
+                }
+                count[0]++;
+                return student;
+            }
+        };
+        try {
+            return super.addStudents(tracked, batchSize, upsert);
+        } finally {
+            if (count[0] > ids.length) {
+                cache.invalidateAll();
+            } else {
+                for (int i = 0; i < count[0]; i++) {
+                    cache.invalidate(ids[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean updateStudent(Student student) {
+        try {
+            return super.updateStudent(student);
+        } finally {
+            cache.invalidate(student.getId());
+        }
+    }
+
+    @Override
+    public boolean deleteStudent(int id) {
+        try {
+            return super.deleteStudent(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // A bulk mutation can touch any number of students, so the whole cache goes
+    @Override
+    public int updateStudents(StudentFilter filter, GradeChange change) {
+        try {
+            return super.updateStudents(filter, change);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public int deleteStudents(StudentFilter filter) {
+        try {
+            return super.deleteStudents(filter);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    public StudentCache.CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+}
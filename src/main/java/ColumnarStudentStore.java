@@ -0,0 +1,540 @@
+// In-memory StudentRepository that keeps students in parallel primitive columns.
+// Lookups go through an int-keyed open-addressing index, grade filters through a per-grade bitmap,
+// and Student objects are only created for the rows handed back to the caller.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class ColumnarStudentStore implements StudentRepository {
+    // Rows materialized per read-lock hold while streaming, so writers are never blocked for a whole scan
+    private static final int STREAM_CHUNK_SIZE = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntIntHashMap rowById;
+    private final Map<Integer, BitSet> rowsByGrade = new HashMap<>();
+    // Names repeat heavily across a roster, so each distinct name is stored once
+    private final Map<String, String> namePool = new HashMap<>();
+    // Fired under the write lock, so listeners see the writes to one student in order
+    private final StudentChangeListeners listeners = new StudentChangeListeners();
+    private int[] ids;
+    private int[] grades;
+    private String[] names;
+    private String[] emails;
+    private int size;
+    // Row numbers in (name, id) order; rebuilt lazily after a write
+    private volatile int[] sortedRows;
+
+    ColumnarStudentStore() {
+        this(1024);
+    }
+
+    ColumnarStudentStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        rowById = new IntIntHashMap(capacity);
+        ids = new int[capacity];
+        grades = new int[capacity];
+        names = new String[capacity];
+        emails = new String[capacity];
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addStudent(Student student) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (rowById.get(student.getId()) != IntIntHashMap.NO_VALUE) {
+                return false;
+            }
+            insertRow(student);
+            listeners.fireSaved(student);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            OperationMetrics.ADD_STUDENT.recordLatency(start);
+        }
+    }
+
+    @Override
+    public BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        List<Student> chunk = new ArrayList<>(batchSize);
+        try {
+            while (students.hasNext()) {
+                chunk.add(students.next());
+                if (chunk.size() == batchSize || !students.hasNext()) {
+                    result.addBatch(writeBatch(chunk, upsert));
+                    chunk.clear();
+                }
+            }
+        } finally {
+            OperationMetrics.ADD_STUDENTS.recordLatency(start);
+        }
+        return result;
+    }
+
+    private BulkImportResult.Batch writeBatch(List<Student> chunk, boolean upsert) {
+        int inserted = 0;
+        int updated = 0;
+        int skipped = 0;
+        lock.writeLock().lock();
+        try {
+            for (Student student : chunk) {
+                int row = rowById.get(student.getId());
+                if (row == IntIntHashMap.NO_VALUE) {
+                    insertRow(student);
+                    listeners.fireSaved(student);
+                    inserted++;
+                } else if (upsert) {
+                    updateRow(row, student);
+                    listeners.fireSaved(student);
+                    updated++;
+                } else {
+                    skipped++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new BulkImportResult.Batch(inserted, updated, skipped, 0);
+    }
+
+    @Override
+    public Student getStudentById(int id) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            int row = rowById.get(id);
+            return row == IntIntHashMap.NO_VALUE ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+            OperationMetrics.GET_STUDENT_BY_ID.recordLatency(start);
+        }
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        lock.readLock().lock();
+        try {
+            List<Student> students = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                students.add(materialize(row));
+            }
+            return students;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every student stored when the stream opens and not deleted since is returned, read in chunks by ID: a delete
+    // moves the last row into the hole, so walking row positions could skip a student that never changed.
+    // Students added while the stream is open are not seen; updates may or may not be.
+    @Override
+    public Stream<Student> streamAllStudents() {
+        int[] snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = Arrays.copyOf(ids, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return chunkedStream(idSource(snapshot, snapshot.length, null));
+    }
+
+    @Override
+    public Stream<Student> streamStudentsByGrade(int grade) {
+        int[] rows;
+        int count;
+        lock.readLock().lock();
+        try {
+            BitSet bitmap = rowsByGrade.get(grade);
+            if (bitmap == null) {
+                return Stream.empty();
+            }
+            rows = bitmap.stream().toArray();
+            count = rows.length;
+            sortRowsByName(rows, count);
+            // Replace row numbers by IDs, since rows can move when other students are deleted
+            for (int i = 0; i < count; i++) {
+                rows[i] = ids[rows[i]];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return chunkedStream(idSource(rows, count, grade));
+    }
+
+    @Override
+    public Stream<Student> streamStudentsSortedByName() {
+        int[] order;
+        lock.readLock().lock();
+        try {
+            order = idsInNameOrder();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return chunkedStream(idSource(order, order.length, null));
+    }
+
+    @Override
+    public Map<Integer, Long> countStudentsByGrade() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, BitSet> entry : rowsByGrade.entrySet()) {
+                int cardinality = entry.getValue().cardinality();
+                if (cardinality > 0) {
+                    counts.put(entry.getKey(), (long) cardinality);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Student> getStudentsPage(Integer grade, Student after, int limit) {
+        List<Student> page = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        lock.readLock().lock();
+        try {
+            int[] order = sortedRows();
+            int position = 0;
+            if (after != null) {
+                // First row strictly after (after.name, after.id)
+                int low = 0;
+                int high = size;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(names[order[middle]], ids[order[middle]], after.getName(), after.getId()) <= 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                position = low;
+            }
+            for (; position < size && page.size() < limit; position++) {
+                int row = order[position];
+                if (grade == null || grades[row] == grade) {
+                    page.add(materialize(row));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return page;
+    }
+
+    @Override
+    public boolean updateStudent(Student student) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(student.getId());
+            if (row == IntIntHashMap.NO_VALUE) {
+                return false;
+            }
+            updateRow(row, student);
+            listeners.fireSaved(student);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            OperationMetrics.UPDATE_STUDENT.recordLatency(start);
+        }
+    }
+
+    @Override
+    public boolean deleteStudent(int id) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(id);
+            if (row == IntIntHashMap.NO_VALUE) {
+                return false;
+            }
+            removeRow(row);
+            listeners.fireDeleted(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            OperationMetrics.DELETE_STUDENT.recordLatency(start);
+        }
+    }
+
+    // Single pass over the columns under the write lock; the filter reads the id, grade and email columns directly,
+    // so only matching rows are materialized
+    @Override
+    public int updateStudents(StudentFilter filter, GradeChange change) {
+        long start = System.nanoTime();
+        int affected = 0;
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                if (filter.matches(ids[row], grades[row], emails[row])) {
+                    Student updated = change.apply(materialize(row));
+                    updateRow(row, updated);
+                    listeners.fireSaved(updated);
+                    affected++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+            OperationMetrics.UPDATE_STUDENTS.recordLatency(start);
+        }
+        return affected;
+    }
+
+    @Override
+    public int deleteStudents(StudentFilter filter) {
+        long start = System.nanoTime();
+        int affected = 0;
+        lock.writeLock().lock();
+        try {
+            // Walk backwards: removeRow moves the last row into the hole, and that row has already been checked
+            for (int row = size - 1; row >= 0; row--) {
+                int id = ids[row];
+                if (filter.matches(id, grades[row], emails[row])) {
+                    removeRow(row);
+                    listeners.fireDeleted(id);
+                    affected++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+            OperationMetrics.DELETE_STUDENTS.recordLatency(start);
+        }
+        return affected;
+    }
+
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Caller holds the write lock
+    private void insertRow(Student student) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            grades = Arrays.copyOf(grades, capacity);
+            names = Arrays.copyOf(names, capacity);
+            emails = Arrays.copyOf(emails, capacity);
+        }
+        int row = size++;
+        ids[row] = student.getId();
+        rowById.put(student.getId(), row);
+        setColumns(row, student);
+        sortedRows = null;
+    }
+
+    // Caller holds the write lock. Keeps the columns dense by moving the last row into the hole.
+    private void removeRow(int row) {
+        rowById.remove(ids[row]);
+        rowsByGrade.get(grades[row]).clear(row);
+        int last = size - 1;
+        if (row != last) {
+            BitSet lastGrade = rowsByGrade.get(grades[last]);
+            lastGrade.clear(last);
+            lastGrade.set(row);
+            ids[row] = ids[last];
+            grades[row] = grades[last];
+            names[row] = names[last];
+            emails[row] = emails[last];
+            rowById.put(ids[row], row);
+        }
+        names[last] = null;
+        emails[last] = null;
+        size--;
+        sortedRows = null;
+    }
+
+    // Caller holds the write lock
+    private void updateRow(int row, Student student) {
+        rowsByGrade.get(grades[row]).clear(row);
+        setColumns(row, student);
+        sortedRows = null;
+    }
+
+    private void setColumns(int row, Student student) {
+        grades[row] = student.getGrade();
+        names[row] = intern(student.getName());
+        emails[row] = student.getEmail();
+        rowsByGrade.computeIfAbsent(student.getGrade(), grade -> new BitSet()).set(row);
+    }
+
+    private String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String pooled = namePool.putIfAbsent(name, name);
+        return pooled == null ? name : pooled;
+    }
+
+    private Student materialize(int row) {
+        return new Student(ids[row], names[row], emails[row], grades[row]);
+    }
+
+    // Caller holds at least the read lock. Sorting under the read lock races with other readers,
+    // so the cached order is published through a local and written at most redundantly.
+    private int[] sortedRows() {
+        int[] order = sortedRows;
+        if (order == null) {
+            order = new int[size];
+            for (int row = 0; row < size; row++) {
+                order[row] = row;
+            }
+            sortRowsByName(order, size);
+            sortedRows = order;
+        }
+        return order;
+    }
+
+    private int[] idsInNameOrder() {
+        int[] order = sortedRows();
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    // Merge sort over row numbers comparing the name/id columns directly, so no boxing or comparator objects
+    private void sortRowsByName(int[] rows, int count) {
+        if (count < 2) {
+            return;
+        }
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int low = 0; low < count - width; low += width << 1) {
+                int middle = low + width;
+                int high = Math.min(low + (width << 1), count);
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    buffer[out++] = compareRows(rows[left], rows[right]) <= 0 ? rows[left++] : rows[right++];
+                }
+                while (left < middle) {
+                    buffer[out++] = rows[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = rows[right++];
+                }
+                System.arraycopy(buffer, low, rows, low, high - low);
+            }
+        }
+    }
+
+    private int compareRows(int a, int b) {
+        return compare(names[a], ids[a], names[b], ids[b]);
+    }
+
+    // Same ordering as the SQL "ORDER BY name, id": nulls first, then by name, then by id
+    private static int compare(String nameA, int idA, String nameB, int idB) {
+        if (nameA != nameB) {
+            if (nameA == null) {
+                return -1;
+            }
+            if (nameB == null) {
+                return 1;
+            }
+            int byName = nameA.compareTo(nameB);
+            if (byName != 0) {
+                return byName;
+            }
+        }
+        return Integer.compare(idA, idB);
+    }
+
+    // Hands out a precomputed list of IDs; rows deleted (or moved out of the grade) in the meantime are skipped
+    private RowSource idSource(int[] orderedIds, int count, Integer grade) {
+        return new RowSource() {
+            private int next;
+
+            @Override
+            public int fill(int[] rows) {
+                int filled = 0;
+                while (filled < rows.length && next < count) {
+                    int row = rowById.get(orderedIds[next++]);
+                    if (row != IntIntHashMap.NO_VALUE && (grade == null || grades[row] == grade)) {
+                        rows[filled++] = row;
+                    }
+                }
+                return filled;
+            }
+        };
+    }
+
+    // Produces up to rows.length row numbers per call; called with the read lock held
+    private interface RowSource {
+        int fill(int[] rows);
+    }
+
+    private Stream<Student> chunkedStream(RowSource source) {
+        Spliterator<Student> spliterator = new Spliterators.AbstractSpliterator<Student>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final int[] rows = new int[STREAM_CHUNK_SIZE];
+            private final Student[] chunk = new Student[STREAM_CHUNK_SIZE];
+            private int position;
+            private int count;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action) {
+                if (position == count) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    lock.readLock().lock();
+                    try {
+                        count = source.fill(rows);
+                        for (int i = 0; i < count; i++) {
+                            chunk[i] = materialize(rows[i]);
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                    position = 0;
+                    exhausted = count < rows.length;
+                    if (count == 0) {
+                        return false;
+                    }
+                }
+                Student student = chunk[position];
+                chunk[position++] = null;
+                action.accept(student);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+}
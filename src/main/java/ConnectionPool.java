@@ -0,0 +1,326 @@
+// Bounded JDBC connection pool with validation on borrow and a per-connection prepared statement cache
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+class ConnectionPool implements AutoCloseable {
+    private final DatabaseConfig config;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    ConnectionPool(DatabaseConfig config) throws SQLException {
+        this.config = config;
+        this.permits = new Semaphore(config.getPoolMaxSize(), true);
+        for (int i = 0; i < config.getPoolMinSize(); i++) {
+            idle.offer(openConnection());
+        }
+    }
+
+    // Returns a connection handle; closing the handle gives the connection back to the pool
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out after " + config.getAcquireTimeoutMillis() +
+                        " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.physical.isValid(config.getValidationTimeoutSeconds())) {
+                    break;
+                }
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            activeCount.incrementAndGet();
+            borrowCount.increment();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+            } else {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+        totalCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalCount.decrementAndGet();
+        pooled.closePhysical();
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        return new PoolStats(activeCount.get(), idle.size(), totalCount.get(), config.getPoolMaxSize(), borrows,
+                timeoutCount.sum(), borrows == 0 ? 0 : waitNanos.sum() / borrows, maxWaitNanos.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    static class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int maxSize;
+        private final long borrows;
+        private final long timeouts;
+        private final long averageWaitNanos;
+        private final long maxWaitNanos;
+
+        PoolStats(int active, int idle, int total, int maxSize, long borrows, long timeouts,
+                  long averageWaitNanos, long maxWaitNanos) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.averageWaitNanos = averageWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public long getBorrows() {
+            return borrows;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getAverageWaitNanos() {
+            return averageWaitNanos;
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PoolStats{active=%d, idle=%d, total=%d/%d, borrows=%d, timeouts=%d, " +
+                            "avgWait=%.3f ms, maxWait=%.3f ms}", active, idle, total, maxSize, borrows, timeouts,
+                    averageWaitNanos / 1_000_000.0, maxWaitNanos / 1_000_000.0);
+        }
+    }
+
+    // A physical connection plus its statement cache. Only one handle is live at a time.
+    private class PooledConnection {
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statementCache;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > config.getStatementCacheSize()) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandle(this));
+        }
+
+        PreparedStatement prepare(String sql, Connection handle) throws SQLException {
+            PreparedStatement statement = statementCache.remove(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = physical.prepareStatement(sql);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this, sql, statement, handle));
+        }
+
+        void returnStatement(String sql, PreparedStatement statement) {
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                PreparedStatement previous = statementCache.put(sql, statement);
+                if (previous != null && previous != statement) {
+                    closeQuietly(previous);
+                }
+            } catch (SQLException e) {
+                closeQuietly(statement);
+            }
+        }
+
+        void closePhysical() {
+            Iterator<PreparedStatement> statements = statementCache.values().iterator();
+            while (statements.hasNext()) {
+                closeQuietly(statements.next());
+                statements.remove();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!released) {
+                    released = true;
+                    release(pooled);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return released || pooled.physical.isClosed();
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.prepare((String) args[0], (Connection) proxy);
+            }
+            return invokeOn(pooled.physical, method, args);
+        }
+    }
+
+    private static class StatementHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final Connection connectionHandle;
+        private boolean returned;
+
+        StatementHandle(PooledConnection pooled, String sql, PreparedStatement statement, Connection connectionHandle) {
+            this.pooled = pooled;
+            this.sql = sql;
+            this.statement = statement;
+            this.connectionHandle = connectionHandle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!returned) {
+                    returned = true;
+                    pooled.returnStatement(sql, statement);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return returned || statement.isClosed();
+            }
+            if (name.equals("getConnection")) {
+                return connectionHandle;
+            }
+            return invokeOn(statement, method, args);
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // Statement is being evicted; nothing useful to do with the error
+        }
+    }
+}
@@ -0,0 +1,321 @@
+// CSV exporter: encodes rows into one reusable buffer and writes it through a FileChannel, optionally gzip-compressed
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+
+class CsvExporter {
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+
+    CsvExporter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    CsvExporter(int bufferSize) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize must be at least 1024 bytes: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    // Writes id,name,email,grade lines in the format CsvImporter reads back. Fields containing commas, quotes,
+    // backslashes or line breaks are quoted, with quotes doubled and \\, \n and \r escaped, so every record stays
+    // on one line. A null field is written empty and an empty string as "".
+    public Report export(Iterator<Student> students, Path path, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return exportTo(students, Encoder::writeStudent, path, gzip, start);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.EXPORT_FILE.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.EXPORT_FILE.recordLatency(start);
+        }
+    }
+
+    // Writes a change feed: "U,id,name,email,grade" for inserts/updates and "D,id" for deletes, in version order
+    public Report exportChanges(Iterator<StudentChange> changes, Path path, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return exportTo(changes, Encoder::writeChange, path, gzip, start);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.EXPORT_FILE.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.EXPORT_FILE.recordLatency(start);
+        }
+    }
+
+    private interface RowWriter<T> {
+        void write(Encoder encoder, T row) throws IOException;
+    }
+
+    private <T> Report exportTo(Iterator<T> rows, RowWriter<T> rowWriter, Path path, boolean gzip, long start)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // gzip needs a heap array to deflate from; the plain path writes a direct buffer without copying
+            ByteBuffer buffer = gzip ? ByteBuffer.allocate(bufferSize) : ByteBuffer.allocateDirect(bufferSize);
+            Sink sink = gzip ? new GzipSink(channel) : new ChannelSink(channel);
+            Encoder encoder = new Encoder(buffer, sink);
+            long count = 0;
+            while (rows.hasNext()) {
+                rowWriter.write(encoder, rows.next());
+                count++;
+            }
+            encoder.flush();
+            sink.finish();
+            return new Report(count, encoder.bytesEncoded, channel.size(), gzip, System.nanoTime() - start);
+        }
+    }
+
+    private interface Sink {
+        void write(ByteBuffer buffer) throws IOException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private static class ChannelSink implements Sink {
+        private final FileChannel channel;
+
+        ChannelSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static class GzipSink implements Sink {
+        private final GZIPOutputStream out;
+
+        GzipSink(FileChannel channel) throws IOException {
+            // Not closed here: the caller's try-with-resources owns the channel
+            OutputStream channelStream = Channels.newOutputStream(channel);
+            this.out = new GZIPOutputStream(channelStream, GZIP_BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) throws IOException {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.finish();
+            out.flush();
+        }
+    }
+
+    // Hand-rolled UTF-8 and decimal encoding straight into the buffer, so no per-row Strings or byte[] are created
+    private static class Encoder {
+        // Worst case per char: a BMP char is 3 bytes, a surrogate pair 4 bytes for 2 chars, a doubled quote or
+        // an escape 2
+        private static final int MAX_BYTES_PER_CHAR = 3;
+
+        private final ByteBuffer buffer;
+        private final Sink sink;
+        private long bytesEncoded;
+
+        Encoder(ByteBuffer buffer, Sink sink) {
+            this.buffer = buffer;
+            this.sink = sink;
+        }
+
+        void writeStudent(Student student) throws IOException {
+            writeInt(student.getId());
+            writeByte(',');
+            writeField(student.getName());
+            writeByte(',');
+            writeField(student.getEmail());
+            writeByte(',');
+            writeInt(student.getGrade());
+            writeByte('\n');
+        }
+
+        void writeChange(StudentChange change) throws IOException {
+            if (change.getType() == StudentChange.Type.DELETE) {
+                writeByte('D');
+                writeByte(',');
+                writeInt(change.getId());
+                writeByte('\n');
+            } else {
+                writeByte('U');
+                writeByte(',');
+                writeStudent(change.getStudent());
+            }
+        }
+
+        void writeByte(char c) throws IOException {
+            ensureRemaining(1);
+            buffer.put((byte) c);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensureRemaining(11);
+            if (value == Integer.MIN_VALUE) {
+                for (char c : "-2147483648".toCharArray()) {
+                    buffer.put((byte) c);
+                }
+                return;
+            }
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + (value / divisor) % 10));
+            }
+        }
+
+        void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = value.isEmpty() || needsQuoting(value);
+            int needed = value.length() * MAX_BYTES_PER_CHAR + 2;
+            if (needed > buffer.capacity()) {
+                writeLargeField(value, quote);
+                return;
+            }
+            ensureRemaining(needed);
+            if (quote) {
+                buffer.put((byte) '"');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' && quote) {
+                    buffer.put((byte) '"');
+                    buffer.put((byte) '"');
+                } else if ((c == '\\' || c == '\n' || c == '\r') && quote) {
+                    buffer.put((byte) '\\');
+                    buffer.put((byte) (c == '\n' ? 'n' : c == '\r' ? 'r' : '\\'));
+                } else if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | (c >> 6)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?'); // unpaired surrogate, same replacement String.getBytes uses
+                } else {
+                    buffer.put((byte) (0xE0 | (c >> 12)));
+                    buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+            if (quote) {
+                buffer.put((byte) '"');
+            }
+        }
+
+        // Slow path for fields bigger than the whole buffer
+        private void writeLargeField(String value, boolean quote) throws IOException {
+            String escaped = quote ? "\"" + value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r")
+                    .replace("\"", "\"\"") + "\"" : value;
+            byte[] bytes = escaped.getBytes(StandardCharsets.UTF_8);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private static boolean needsQuoting(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\\' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            bytesEncoded += buffer.remaining();
+            sink.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    static class Report {
+        private final long rows;
+        private final long bytesEncoded;
+        private final long bytesWritten;
+        private final boolean gzip;
+        private final long elapsedNanos;
+
+        Report(long rows, long bytesEncoded, long bytesWritten, boolean gzip, long elapsedNanos) {
+            this.rows = rows;
+            this.bytesEncoded = bytesEncoded;
+            this.bytesWritten = bytesWritten;
+            this.gzip = gzip;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // Uncompressed CSV size
+        public long getBytesEncoded() {
+            return bytesEncoded;
+        }
+
+        // Size of the file on disk (compressed when gzip is on)
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{rows=%d, bytesEncoded=%d, bytesWritten=%d, gzip=%b, elapsed=%.1f ms, " +
+                            "rowsPerSecond=%.0f}", rows, bytesEncoded, bytesWritten, gzip, elapsedNanos / 1_000_000.0,
+                    getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,446 @@
+// Parallel CSV importer: memory-maps the file, splits it into newline-aligned chunks and parses them on a thread pool
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+class CsvImporter {
+    static final int MAX_REPORTED_BAD_LINES = 100;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 256L << 20;
+    private static final int FIELD_COUNT = 4;
+
+    private final int parallelism;
+    private final int batchSize;
+
+    CsvImporter() {
+        this(Runtime.getRuntime().availableProcessors(), StudentRepository.DEFAULT_BATCH_SIZE);
+    }
+
+    CsvImporter(int parallelism, int batchSize) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("parallelism and batchSize must be positive");
+        }
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    // Parses id,name,email,grade rows and hands them to the sink in batches. The sink is called
+    // from several worker threads at once, so it must be thread-safe.
+    public Report importFile(Path path, Consumer<List<Student>> sink) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return isGzip(path) ? importGzip(path, sink, start) : importMapped(path, sink, start);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.IMPORT_FILE.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.IMPORT_FILE.recordLatency(start);
+        }
+    }
+
+    private Report importMapped(Path path, Consumer<List<Student>> sink, long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(channel);
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, chunks.size())));
+            try {
+                List<Future<ChunkResult>> futures = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    futures.add(executor.submit(() -> parseChunk(channel, chunk[0], chunk[1], sink)));
+                }
+
+                Report report = new Report();
+                long linesBefore = 0;
+                for (Future<ChunkResult> future : futures) {
+                    ChunkResult result = future.get();
+                    report.rows += result.rows;
+                    report.badLineCount += result.badLineCount;
+                    for (BadLine badLine : result.badLines) {
+                        if (report.badLines.size() < MAX_REPORTED_BAD_LINES) {
+                            report.badLines.add(new BadLine(linesBefore + badLine.lineNumber, badLine.reason));
+                        }
+                    }
+                    linesBefore += result.lines;
+                }
+                report.lines = linesBefore;
+                report.elapsedNanos = System.nanoTime() - start;
+                return report;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    // Compressed input cannot be mapped or split, so it is inflated and parsed on the calling thread
+    private Report importGzip(Path path, Consumer<List<Student>> sink, long start) throws IOException {
+        Report report = new Report();
+        LineParser parser = new LineParser();
+        List<Student> batch = new ArrayList<>(batchSize);
+        byte[] data = new byte[1 << 20];
+        int length = 0;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path), 64 * 1024)) {
+            boolean eof = false;
+            while (!eof || length > 0) {
+                if (!eof) {
+                    if (length == data.length) {
+                        data = Arrays.copyOf(data, data.length * 2);
+                    }
+                    int read = in.read(data, length, data.length - length);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        length += read;
+                    }
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                int lineStart = 0;
+                while (true) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < length && data[lineEnd] != '\n') {
+                        lineEnd++;
+                    }
+                    if (lineEnd == length && !eof) {
+                        break; // incomplete line, wait for more input
+                    }
+                    if (lineStart == length) {
+                        break;
+                    }
+                    report.lines++;
+                    int contentEnd = lineEnd > lineStart && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                    if (contentEnd > lineStart) {
+                        Student student = parser.parse(buffer, lineStart, contentEnd);
+                        if (student != null) {
+                            batch.add(student);
+                            report.rows++;
+                            if (batch.size() == batchSize) {
+                                sink.accept(batch);
+                                batch = new ArrayList<>(batchSize);
+                            }
+                        } else {
+                            report.badLineCount++;
+                            if (report.badLines.size() < MAX_REPORTED_BAD_LINES) {
+                                report.badLines.add(new BadLine(report.lines, parser.getError()));
+                            }
+                        }
+                    }
+                    lineStart = Math.min(lineEnd + 1, length);
+                }
+                System.arraycopy(data, lineStart, data, 0, length - lineStart);
+                length -= lineStart;
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // Picks evenly spaced split points and moves each one forward to just past the next newline
+    private List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L)));
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long chunkStart = 0;
+        while (chunkStart < size) {
+            long chunkEnd = Math.min(size, chunkStart + target);
+            while (chunkEnd < size) {
+                probe.clear();
+                int read = channel.read(probe, chunkEnd);
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    chunkEnd += newline + 1;
+                    break;
+                }
+                chunkEnd += read;
+            }
+            chunkEnd = Math.min(size, chunkEnd);
+            if (chunkEnd - chunkStart > Integer.MAX_VALUE) {
+                throw new IOException("Line starting near byte " + chunkStart + " is too long to import");
+            }
+            chunks.add(new long[]{chunkStart, chunkEnd});
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long start, long end, Consumer<List<Student>> sink)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        LineParser parser = new LineParser();
+        ChunkResult result = new ChunkResult();
+        List<Student> batch = new ArrayList<>(batchSize);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            result.lines++;
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                Student student = parser.parse(buffer, lineStart, contentEnd);
+                if (student != null) {
+                    batch.add(student);
+                    result.rows++;
+                    if (batch.size() == batchSize) {
+                        sink.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                } else {
+                    result.badLineCount++;
+                    if (result.badLines.size() < MAX_REPORTED_BAD_LINES) {
+                        result.badLines.add(new BadLine(result.lines, parser.getError()));
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return result;
+    }
+
+    // Splits one line into fields, unquoting "..." fields (doubled quotes and the \\, \n, \r escapes CsvExporter
+    // writes) into a reusable scratch array. An empty unquoted field is null; "" is an empty string.
+    // Numeric fields are parsed straight from the bytes without creating a String.
+    static class LineParser {
+        private final int[] fieldStart = new int[FIELD_COUNT];
+        private final int[] fieldLength = new int[FIELD_COUNT];
+        private final boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+        private byte[] scratch = new byte[256];
+        private String error;
+
+        Student parse(ByteBuffer buffer, int start, int end) {
+            if (scratch.length < end - start) {
+                scratch = new byte[Math.max(end - start, scratch.length * 2)];
+            }
+            int fields = 0;
+            int out = 0;
+            int position = start;
+            while (true) {
+                if (fields == FIELD_COUNT) {
+                    error = "expected " + FIELD_COUNT + " fields but found more";
+                    return null;
+                }
+                fieldStart[fields] = out;
+                fieldQuoted[fields] = position < end && buffer.get(position) == '"';
+                if (fieldQuoted[fields]) {
+                    position++;
+                    boolean closed = false;
+                    while (position < end) {
+                        byte b = buffer.get(position++);
+                        if (b == '"') {
+                            if (position < end && buffer.get(position) == '"') {
+                                scratch[out++] = '"';
+                                position++;
+                            } else {
+                                closed = true;
+                                break;
+                            }
+                        } else if (b == '\\' && position < end) {
+                            // Anything other than \\, \n or \r is kept as written
+                            byte escaped = buffer.get(position);
+                            if (escaped == 'n' || escaped == 'r' || escaped == '\\') {
+                                scratch[out++] = (byte) (escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : '\\');
+                                position++;
+                            } else {
+                                scratch[out++] = b;
+                            }
+                        } else {
+                            scratch[out++] = b;
+                        }
+                    }
+                    if (!closed) {
+                        error = "unterminated quoted field";
+                        return null;
+                    }
+                    if (position < end && buffer.get(position) != ',') {
+                        error = "unexpected character after quoted field " + (fields + 1);
+                        return null;
+                    }
+                } else {
+                    while (position < end) {
+                        byte b = buffer.get(position);
+                        if (b == ',') {
+                            break;
+                        }
+                        scratch[out++] = b;
+                        position++;
+                    }
+                }
+                fieldLength[fields] = out - fieldStart[fields];
+                fields++;
+                if (position >= end) {
+                    break;
+                }
+                position++; // skip the comma
+                if (position == end) {
+                    // trailing comma: one more, empty field
+                    if (fields == FIELD_COUNT) {
+                        error = "expected " + FIELD_COUNT + " fields but found more";
+                        return null;
+                    }
+                    fieldStart[fields] = out;
+                    fieldLength[fields] = 0;
+                    fieldQuoted[fields] = false;
+                    fields++;
+                    break;
+                }
+            }
+            if (fields != FIELD_COUNT) {
+                error = "expected " + FIELD_COUNT + " fields but found " + fields;
+                return null;
+            }
+
+            long id = parseInt(0);
+            if (id == Long.MIN_VALUE) {
+                error = "invalid id";
+                return null;
+            }
+            long grade = parseInt(3);
+            if (grade == Long.MIN_VALUE) {
+                error = "invalid grade";
+                return null;
+            }
+            return new Student((int) id, text(1), text(2), (int) grade);
+        }
+
+        private String text(int field) {
+            if (fieldLength[field] == 0 && !fieldQuoted[field]) {
+                return null;
+            }
+            return new String(scratch, fieldStart[field], fieldLength[field], StandardCharsets.UTF_8);
+        }
+
+        String getError() {
+            return error;
+        }
+
+        // Returns Long.MIN_VALUE if the field is not a valid int
+        private long parseInt(int field) {
+            int position = fieldStart[field];
+            int end = position + fieldLength[field];
+            boolean negative = position < end && scratch[position] == '-';
+            if (negative || (position < end && scratch[position] == '+')) {
+                position++;
+            }
+            if (position == end) {
+                return Long.MIN_VALUE;
+            }
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = scratch[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    return Long.MIN_VALUE;
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    return Long.MIN_VALUE;
+                }
+            }
+            value = negative ? -value : value;
+            return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+        }
+    }
+
+    private static class ChunkResult {
+        private long lines;
+        private long rows;
+        private long badLineCount;
+        private final List<BadLine> badLines = new ArrayList<>();
+    }
+
+    static class BadLine {
+        private final long lineNumber;
+        private final String reason;
+
+        BadLine(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+
+    static class Report {
+        private long lines;
+        private long rows;
+        private long badLineCount;
+        private final List<BadLine> badLines = new ArrayList<>();
+        private long elapsedNanos;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBadLineCount() {
+            return badLineCount;
+        }
+
+        // At most MAX_REPORTED_BAD_LINES entries, in file order
+        public List<BadLine> getBadLines() {
+            return Collections.unmodifiableList(badLines);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{lines=%d, rows=%d, badLines=%d, elapsed=%.1f ms}",
+                    lines, rows, badLineCount, elapsedNanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+// Database and connection pool settings, read from sms.properties and -Dsms.* system properties
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+class DatabaseConfig {
+    static final String DEFAULT_CONFIG_FILE = "sms.properties";
+    private static final String DEFAULT_PATH = "./data/studentdb";
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolMinSize;
+    private final int poolMaxSize;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    DatabaseConfig(String url, String user, String password, int poolMinSize, int poolMaxSize,
+                   long acquireTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (poolMinSize < 0 || poolMaxSize < 1 || poolMinSize > poolMaxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + poolMinSize + ", max=" + poolMaxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.poolMinSize = poolMinSize;
+        this.poolMaxSize = poolMaxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static DatabaseConfig fromSystemProperties() {
+        return fromProperties(System.getProperties());
+    }
+
+    // Reads the file named by -Dsms.config (default ./sms.properties) if it exists; system properties win over it
+    public static DatabaseConfig load() {
+        return fromProperties(loadProperties());
+    }
+
+    // Settings for one shard of a sharded store: shard N gets its own database next to the unsharded one
+    // (studentdb_shardN in memory, or <sms.db.path>_shardN on disk). An explicit sms.db.url must contain
+    // {shard}, which is replaced by the shard number.
+    public static DatabaseConfig loadShard(int shard) {
+        Properties properties = loadProperties();
+        String url = properties.getProperty("sms.db.url");
+        if (url != null) {
+            if (!url.contains("{shard}")) {
+                throw new IllegalArgumentException("sms.db.url must contain {shard} when sharding is enabled");
+            }
+            properties.setProperty("sms.db.url", url.replace("{shard}", String.valueOf(shard)));
+        }
+        properties.setProperty("sms.db.name", properties.getProperty("sms.db.name", "studentdb") + "_shard" + shard);
+        properties.setProperty("sms.db.path", properties.getProperty("sms.db.path", DEFAULT_PATH) + "_shard" + shard);
+        return fromProperties(properties);
+    }
+
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        Path file = Paths.get(System.getProperty("sms.config", DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Error reading " + file + ": " + e.getMessage());
+            }
+        }
+        properties.putAll(System.getProperties());
+        return properties;
+    }
+
+    static DatabaseConfig fromProperties(Properties properties) {
+        return new DatabaseConfig(
+                buildUrl(properties),
+                properties.getProperty("sms.db.user", "sa"),
+                properties.getProperty("sms.db.password", ""),
+                intProperty(properties, "sms.pool.minSize", 2),
+                intProperty(properties, "sms.pool.maxSize", Math.max(4, Runtime.getRuntime().availableProcessors() * 2)),
+                intProperty(properties, "sms.pool.acquireTimeoutMillis", 5000),
+                intProperty(properties, "sms.pool.validationTimeoutSeconds", 1),
+                intProperty(properties, "sms.pool.statementCacheSize", 32)
+        );
+    }
+
+    // sms.db.url wins if set. Otherwise sms.db.mode=mem (default) or file, where file mode opens
+    // sms.db.path with H2's page cache (CACHE_SIZE, in KB) and commit write delay tuned from config.
+    private static String buildUrl(Properties properties) {
+        String url = properties.getProperty("sms.db.url");
+        if (url != null) {
+            return url;
+        }
+        String mode = properties.getProperty("sms.db.mode", "mem");
+        switch (mode) {
+            case "mem":
+                // DB_CLOSE_DELAY keeps the in-memory database alive while the pool has no open connections
+                return "jdbc:h2:mem:" + properties.getProperty("sms.db.name", "studentdb") + ";DB_CLOSE_DELAY=-1";
+            case "file":
+                return "jdbc:h2:file:" + properties.getProperty("sms.db.path", DEFAULT_PATH) +
+                        ";CACHE_SIZE=" + intProperty(properties, "sms.db.cacheSizeKb", 64 * 1024) +
+                        ";WRITE_DELAY=" + intProperty(properties, "sms.db.writeDelayMillis", 500);
+            default:
+                throw new IllegalArgumentException("Unknown sms.db.mode: " + mode + " (expected mem or file)");
+        }
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    public boolean isPersistent() {
+        return !url.startsWith("jdbc:h2:mem:");
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    public int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
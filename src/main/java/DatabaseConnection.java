@@ -1,20 +1,40 @@
-// Singleton class for database connection
+// Holds a database connection pool: the shared instance for the unsharded store, or one per shard
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
+    private ConnectionPool pool;
+    private DatabaseConfig config;
+    private long openNanos;
+    // Writers that stamp change versions hold the read side for their transaction; a delta export takes the write
+    // side just long enough to draw its upper bound, so every version below that bound is already committed
+    private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
+    // Shared by every DAO on this database, so their listeners see writes to one student in commit order
+    private final StudentDispatchOrder dispatchOrder = new StudentDispatchOrder();
 
+    // In-memory H2 by default; sms.properties or -Dsms.db.mode=file switches to a persistent store
     private DatabaseConnection() {
+        this(DatabaseConfig::load);
+    }
+
+    private DatabaseConnection(ConfigSource source) {
+        long start = System.nanoTime();
         try {
             // Load the H2 database driver
             Class.forName("org.h2.Driver");
-            // Create an in-memory H2 database
-            this.connection = DriverManager.getConnection("jdbc:h2:mem:studentdb", "sa", "");
-        } catch (ClassNotFoundException | SQLException e) {
+            this.config = source.get();
+            // Opening the first pooled connection is what opens (or recovers) a file-backed store
+            this.pool = new ConnectionPool(config);
+        } catch (ClassNotFoundException | SQLException | IllegalArgumentException e) {
             System.err.println("Database connection error: " + e.getMessage());
         }
+        this.openNanos = System.nanoTime() - start;
+    }
+
+    private interface ConfigSource {
+        DatabaseConfig get();
     }
 
     public static synchronized DatabaseConnection getInstance() {
@@ -24,7 +44,43 @@ class DatabaseConnection {
         return instance;
     }
 
-    public Connection getConnection() {
-        return connection;
+    // A separate database and pool for one shard; the caller owns it and must shut it down
+    public static DatabaseConnection openShard(int shard) {
+        return new DatabaseConnection(() -> DatabaseConfig.loadShard(shard));
+    }
+
+    // Borrows a connection from the pool; callers must close it to hand it back
+    public Connection getConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database connection pool is not available");
+        }
+        return pool.borrow();
+    }
+
+    public ReadWriteLock getChangeLock() {
+        return changeLock;
+    }
+
+    public StudentDispatchOrder getDispatchOrder() {
+        return dispatchOrder;
+    }
+
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    // Time spent loading the driver and opening the store when the singleton was created
+    public long getOpenNanos() {
+        return openNanos;
+    }
+
+    public ConnectionPool.PoolStats getPoolStats() {
+        return pool == null ? null : pool.getStats();
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.close();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+// Incremental export: writes only the students changed since a consumer's last run, then moves its checkpoint.
+// Runs against the JDBC backend, which stamps every write with a change version (schema v2).
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+class DeltaExporter {
+    static final String DEFAULT_CONSUMER = "default";
+
+    private final StudentDAO dao;
+
+    DeltaExporter(StudentDAO dao) {
+        this.dao = dao;
+    }
+
+    // The checkpoint only moves once the file is completely written, so a failed run is simply repeated
+    // by the next one (consumers may see a change twice, never miss one)
+    public Report export(String consumer, Path path, boolean gzip) throws IOException, SQLException {
+        long fromVersion = dao.getExportCheckpoint(consumer);
+        long toVersion = dao.reserveChangeWatermark();
+        long[] counts = new long[2];
+        CsvExporter.Report written;
+        try (Stream<StudentChange> changes = dao.streamChanges(fromVersion, toVersion)) {
+            Iterator<StudentChange> iterator = changes.iterator();
+            Iterator<StudentChange> counting = new Iterator<StudentChange>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public StudentChange next() {
+                    StudentChange change = iterator.next();
+                    counts[change.getType() == StudentChange.Type.DELETE ? 1 : 0]++;
+                    return change;
+                }
+            };
+            written = new CsvExporter().exportChanges(counting, path, gzip);
+        } catch (IllegalStateException e) {
+            throw new SQLException(e.getMessage(), e.getCause());
+        }
+        dao.saveExportCheckpoint(consumer, toVersion);
+        return new Report(consumer, fromVersion, toVersion, counts[0], counts[1], written);
+    }
+
+    static class Report {
+        private final String consumer;
+        private final long fromVersion;
+        private final long toVersion;
+        private final long upserts;
+        private final long deletes;
+        private final CsvExporter.Report written;
+
+        Report(String consumer, long fromVersion, long toVersion, long upserts, long deletes,
+               CsvExporter.Report written) {
+            this.consumer = consumer;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.upserts = upserts;
+            this.deletes = deletes;
+            this.written = written;
+        }
+
+        public String getConsumer() {
+            return consumer;
+        }
+
+        public long getFromVersion() {
+            return fromVersion;
+        }
+
+        public long getToVersion() {
+            return toVersion;
+        }
+
+        public long getUpserts() {
+            return upserts;
+        }
+
+        public long getDeletes() {
+            return deletes;
+        }
+
+        public CsvExporter.Report getWritten() {
+            return written;
+        }
+
+        @Override
+        public String toString() {
+            return "DeltaExport{consumer=" + consumer + ", versions=[" + fromVersion + ", " + toVersion + ")" +
+                    ", upserts=" + upserts + ", deletes=" + deletes + ", bytes=" + written.getBytesWritten() + "}";
+        }
+    }
+}
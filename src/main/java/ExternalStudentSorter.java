@@ -0,0 +1,456 @@
+// External merge sort for student listings larger than the heap. Input is cut into runs that fit a share of the
+// memory budget; runs are sorted on worker threads and spilled to temporary files in a compact binary format,
+// then merged back with a k-way merge of bounded fan-in, so memory use depends on the budget, not the row count.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class ExternalStudentSorter {
+    static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // Runs merged at once; more runs than this are merged in passes so open readers stay bounded
+    private static final int MAX_FAN_IN = 64;
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+    // Rough heap cost of a Student with two short strings, plus the list slot; the string lengths are added on top
+    private static final int STUDENT_OVERHEAD_BYTES = 120;
+
+    private final long memoryBudget;
+    private final int parallelism;
+    private final Path tempDirectory;
+
+    ExternalStudentSorter(long memoryBudget, int parallelism, Path tempDirectory) {
+        if (memoryBudget < 1024 * 1024 || parallelism < 1) {
+            throw new IllegalArgumentException("Invalid sort settings: memory=" + memoryBudget +
+                    " bytes, parallelism=" + parallelism);
+        }
+        this.memoryBudget = memoryBudget;
+        this.parallelism = parallelism;
+        this.tempDirectory = tempDirectory;
+    }
+
+    // -Dsms.sort.memoryMb (default 64), -Dsms.sort.threads (default: cores) and -Dsms.sort.tempDir
+    public static ExternalStudentSorter fromSystemProperties() {
+        String tempDirectory = System.getProperty("sms.sort.tempDir", System.getProperty("java.io.tmpdir"));
+        return new ExternalStudentSorter(Long.getLong("sms.sort.memoryMb", DEFAULT_MEMORY_BUDGET >> 20) << 20,
+                Integer.getInteger("sms.sort.threads", Runtime.getRuntime().availableProcessors()),
+                Paths.get(tempDirectory));
+    }
+
+    // Parses a sort specification such as "grade desc, name" over the keys id, name, email and grade.
+    // The ID is always the last tie-breaker, so equal keys come out in a fixed order.
+    public static Comparator<Student> parseOrder(String specification) {
+        Comparator<Student> order = null;
+        boolean hasId = false;
+        for (String part : specification.split(",")) {
+            String[] words = part.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (words.length == 0 || words[0].isEmpty() || words.length > 2) {
+                throw new IllegalArgumentException("Invalid sort key: '" + part.trim() + "'");
+            }
+            Comparator<Student> key;
+            switch (words[0]) {
+                case "id":
+                    key = Comparator.comparingInt(Student::getId);
+                    hasId = true;
+                    break;
+                case "name":
+                    key = Comparator.comparing(Student::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+                    break;
+                case "email":
+                    key = Comparator.comparing(Student::getEmail, Comparator.nullsFirst(Comparator.naturalOrder()));
+                    break;
+                case "grade":
+                    key = Comparator.comparingInt(Student::getGrade);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown sort key: '" + words[0] +
+                            "' (expected id, name, email or grade)");
+            }
+            if (words.length == 2) {
+                if (words[1].equals("desc")) {
+                    key = key.reversed();
+                } else if (!words[1].equals("asc")) {
+                    throw new IllegalArgumentException("Expected asc or desc after '" + words[0] + "'");
+                }
+            }
+            order = order == null ? key : order.thenComparing(key);
+        }
+        return hasId ? order : order.thenComparingInt(Student::getId);
+    }
+
+    // Consumes all of students before returning. The result streams the merge; closing it deletes the spill files.
+    public Sorted sort(Iterator<Student> students, Comparator<Student> order) throws IOException {
+        long start = System.nanoTime();
+        // One run is being filled while up to 'parallelism' others are sorted and written
+        long runBudget = memoryBudget / (parallelism + 1);
+        Semaphore buffers = new Semaphore(parallelism);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "student-sort");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<RunFile>> spills = new ArrayList<>();
+        List<RunFile> runs = new ArrayList<>();
+        long rows = 0;
+        try {
+            List<Student> run = new ArrayList<>();
+            long runBytes = 0;
+            while (students.hasNext()) {
+                Student student = students.next();
+                run.add(student);
+                rows++;
+                runBytes += estimateBytes(student);
+                if (runBytes >= runBudget) {
+                    acquire(buffers);
+                    List<Student> full = run;
+                    spills.add(workers.submit(() -> {
+                        try {
+                            full.sort(order);
+                            return writeRun(full.iterator());
+                        } finally {
+                            buffers.release();
+                        }
+                    }));
+                    run = new ArrayList<>();
+                    runBytes = 0;
+                }
+            }
+            for (Future<RunFile> spill : spills) {
+                runs.add(await(spill));
+            }
+            if (runs.isEmpty()) {
+                // Everything fit in one run: no files, just an in-memory sort
+                run.sort(order);
+                return new Sorted(run.stream(), rows, 0, 0, 0, System.nanoTime() - start);
+            }
+            if (!run.isEmpty()) {
+                run.sort(order);
+                runs.add(writeRun(run.iterator()));
+            }
+            run = null;
+
+            long spilledBytes = 0;
+            for (RunFile file : runs) {
+                spilledBytes += file.bytes;
+            }
+            int spilledRuns = runs.size();
+            int passes = 0;
+            while (runs.size() > MAX_FAN_IN) {
+                runs = mergePass(runs, order);
+                passes++;
+            }
+            List<RunFile> finalRuns = runs;
+            MergeIterator merge = new MergeIterator(finalRuns, order);
+            Stream<Student> sorted = StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(merge, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        merge.close();
+                        deleteAll(finalRuns);
+                    });
+            runs = null;
+            return new Sorted(sorted, rows, spilledRuns, spilledBytes, passes, System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            for (Future<RunFile> spill : spills) {
+                discard(spill);
+            }
+            if (runs != null) {
+                deleteAll(runs);
+            }
+            throw e;
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    // Merges groups of MAX_FAN_IN runs into longer runs; the inputs are deleted as each group finishes. If a group
+    // fails, the runs this pass already wrote are deleted here and the caller deletes the remaining inputs.
+    private List<RunFile> mergePass(List<RunFile> runs, Comparator<Student> order) throws IOException {
+        List<RunFile> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<RunFile> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+                MergeIterator merge = new MergeIterator(group, order);
+                try {
+                    merged.add(writeRun(merge));
+                } finally {
+                    merge.close();
+                    deleteAll(group);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteAll(merged);
+            throw e;
+        }
+        return merged;
+    }
+
+    private RunFile writeRun(Iterator<Student> students) throws IOException {
+        Path path = Files.createTempFile(tempDirectory, "students-sort-", ".run");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), RUN_BUFFER_SIZE))) {
+            while (students.hasNext()) {
+                writeStudent(out, students.next());
+            }
+            return new RunFile(path, out.size());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    // Record layout: id, grade, then name and email as a byte length (-1 for null) + UTF-8. writeUTF is not used
+    // because it cannot write strings longer than 64 KB once encoded.
+    private static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        out.writeInt(student.getId());
+        out.writeInt(student.getGrade());
+        writeString(out, student.getName());
+        writeString(out, student.getEmail());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Student readStudent(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        int grade = in.readInt();
+        String name = readString(in);
+        String email = readString(in);
+        return new Student(id, name, email, grade);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long estimateBytes(Student student) {
+        return STUDENT_OVERHEAD_BYTES + length(student.getName()) + length(student.getEmail());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sorting students", e);
+        }
+    }
+
+    private static RunFile await(Future<RunFile> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sorting students", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Sort worker failed", e.getCause());
+        }
+    }
+
+    // Waits for the spill instead of cancelling it, since a running writeRun would still leave its file behind
+    private static void discard(Future<RunFile> spill) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    Files.deleteIfExists(spill.get().path);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            // The spill failed and wrote nothing to keep
+        } catch (IOException e) {
+            System.err.println("Error deleting sort run: " + e.getMessage());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void deleteAll(List<RunFile> runs) {
+        for (RunFile run : runs) {
+            try {
+                Files.deleteIfExists(run.path);
+            } catch (IOException e) {
+                System.err.println("Error deleting sort run " + run.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static class RunFile {
+        private final Path path;
+        private final long bytes;
+
+        RunFile(Path path, long bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    // K-way merge over run files; the heap holds the next student of each run that is not exhausted
+    private static class MergeIterator implements Iterator<Student> {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> heads;
+
+        MergeIterator(List<RunFile> runs, Comparator<Student> order) throws IOException {
+            heads = new PriorityQueue<>(runs.size(), (a, b) -> order.compare(a.head, b.head));
+            try {
+                for (RunFile run : runs) {
+                    RunReader reader = new RunReader(run.path);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Student next() {
+            RunReader reader = heads.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            Student student = reader.head;
+            try {
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading sort run", e);
+            }
+            return student;
+        }
+
+        void close() {
+            for (RunReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing sort run: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static class RunReader {
+        private final DataInputStream in;
+        private Student head;
+
+        RunReader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), RUN_BUFFER_SIZE));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                head = readStudent(in);
+                return true;
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+        }
+    }
+
+    // The merged output plus what it took to produce it; close it (or its stream) to release the spill files
+    static class Sorted implements AutoCloseable {
+        private final Stream<Student> students;
+        private final long rows;
+        private final int runs;
+        private final long spilledBytes;
+        private final int mergePasses;
+        private final long runPhaseNanos;
+
+        Sorted(Stream<Student> students, long rows, int runs, long spilledBytes, int mergePasses, long runPhaseNanos) {
+            this.students = students;
+            this.rows = rows;
+            this.runs = runs;
+            this.spilledBytes = spilledBytes;
+            this.mergePasses = mergePasses;
+            this.runPhaseNanos = runPhaseNanos;
+        }
+
+        public Stream<Student> stream() {
+            return students;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // Zero when everything fit in memory
+        public int getRuns() {
+            return runs;
+        }
+
+        public long getSpilledBytes() {
+            return spilledBytes;
+        }
+
+        @Override
+        public void close() {
+            students.close();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Sorted{rows=%d, runs=%d, spilled=%d bytes, intermediatePasses=%d, runPhase=%d ms}",
+                    rows, runs, spilledBytes, mergePasses, runPhaseNanos / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// The change a bulk update applies to each selected student's grade: set it to a value or shift it by a delta
+class GradeChange {
+    private final boolean relative;
+    private final int value;
+
+    private GradeChange(boolean relative, int value) {
+        this.relative = relative;
+        this.value = value;
+    }
+
+    static GradeChange setTo(int grade) {
+        return new GradeChange(false, grade);
+    }
+
+    // e.g. shiftBy(1) promotes everyone selected by one grade
+    static GradeChange shiftBy(int delta) {
+        return new GradeChange(true, delta);
+    }
+
+    public int apply(int grade) {
+        return relative ? grade + value : value;
+    }
+
+    public Student apply(Student student) {
+        return new Student(student.getId(), student.getName(), student.getEmail(), apply(student.getGrade()));
+    }
+
+    // Right-hand side of "SET grade = ..." with one parameter, whose value is getValue()
+    String toSql() {
+        return relative ? "grade + ?" : "?";
+    }
+
+    int getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return relative ? "grade " + (value >= 0 ? "+" : "") + value : "grade = " + value;
+    }
+}
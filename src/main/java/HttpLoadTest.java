@@ -0,0 +1,124 @@
+// Load test for the HTTP API: seeds students through /import, then drives concurrent GET /students/{id}
+// lookups (plus a share of paged listings) against a running server and reports throughput and latency.
+// Start the server with: java -cp target/classes:<h2.jar> StudentManagementSystem --server
+// Then run:             java -cp target/classes HttpLoadTest  (-Dload.url, -Dload.students, -Dload.requests,
+//                       -Dload.concurrency, -Dload.listPercent)
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HttpLoadTest {
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace", "Linus", "Barbara", "Edsger", "Donald", "Margaret"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Torvalds", "Liskov", "Dijkstra", "Knuth"};
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("load.url", "http://localhost:" + StudentHttpServer.DEFAULT_PORT);
+        int students = Integer.getInteger("load.students", 100_000);
+        int requests = Integer.getInteger("load.requests", 200_000);
+        int concurrency = Integer.getInteger("load.concurrency", 1000);
+        int listPercent = Integer.getInteger("load.listPercent", 5);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        seed(client, baseUrl, students);
+
+        System.out.printf("Running %,d requests with %,d in flight (%d%% paged listings)...%n",
+                requests, concurrency, listPercent);
+        long[] latencies = new long[requests];
+        AtomicInteger nextSlot = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong notFound = new AtomicLong();
+        Semaphore inFlight = new Semaphore(concurrency);
+        Random random = new Random(7);
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            String path = random.nextInt(100) < listPercent
+                    ? "/students?grade=" + (random.nextInt(12) + 1) + "&limit=50"
+                    : "/students/" + (random.nextInt(students) + 1);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30)).GET().build();
+            long sent = System.nanoTime();
+            pending[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[nextSlot.getAndIncrement()] = System.nanoTime() - sent;
+                        if (failure != null || response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        } else if (response.statusCode() == 404) {
+                            notFound.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(pending).exceptionally(failure -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%,d requests in %,d ms: %,.0f req/s, %,d errors, %,d not found%n", requests,
+                elapsed / 1_000_000, requests * 1_000_000_000.0 / elapsed, errors.get(), notFound.get());
+        System.out.printf("latency p50=%.2f ms p90=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1] / 1_000_000.0);
+    }
+
+    // Upserts IDs 1..count through the bulk import endpoint, so every lookup in the run hits an existing row
+    private static void seed(HttpClient client, String baseUrl, int count) throws IOException, InterruptedException {
+        Path csv = Files.createTempFile("students-load-", ".csv");
+        try {
+            Random random = new Random(count);
+            Iterator<Student> roster = new Iterator<Student>() {
+                private int next = 1;
+
+                @Override
+                public boolean hasNext() {
+                    return next <= count;
+                }
+
+                @Override
+                public Student next() {
+                    String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                    String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                    int id = next++;
+                    return new Student(id, first + " " + last,
+                            first.toLowerCase() + "." + last.toLowerCase() + id + "@school.edu", random.nextInt(12) + 1);
+                }
+            };
+            new CsvExporter().export(roster, csv, true);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/import?upsert=true"))
+                    .timeout(Duration.ofMinutes(10))
+                    .POST(HttpRequest.BodyPublishers.ofFile(csv))
+                    .build();
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with HTTP " + response.statusCode() + ": " + response.body());
+            }
+            System.out.printf("Seeded %,d students in %,d ms: %s%n", count, (System.nanoTime() - start) / 1_000_000,
+                    response.body());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
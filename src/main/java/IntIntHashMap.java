@@ -0,0 +1,149 @@
+// Open-addressing int-to-int hash map (linear probing, backward-shift deletion) with no boxing
+import java.util.Arrays;
+
+class IntIntHashMap {
+    static final int NO_VALUE = -1;
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    // Integer.MIN_VALUE marks empty slots, so a mapping for that key is kept on the side
+    private boolean hasMinKey;
+    private int minKeyValue = NO_VALUE;
+
+    IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size + (hasMinKey ? 1 : 0);
+    }
+
+    // Returns the value for key, or NO_VALUE if absent
+    public int get(int key) {
+        if (key == EMPTY) {
+            return hasMinKey ? minKeyValue : NO_VALUE;
+        }
+        int slot = slot(key);
+        while (true) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY) {
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Returns the previous value, or NO_VALUE if the key was absent
+    public int put(int key, int value) {
+        if (key == EMPTY) {
+            int previous = hasMinKey ? minKeyValue : NO_VALUE;
+            hasMinKey = true;
+            minKeyValue = value;
+            return previous;
+        }
+        int slot = slot(key);
+        while (true) {
+            int existing = keys[slot];
+            if (existing == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeAt) {
+                    resize(keys.length << 1);
+                }
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Returns the removed value, or NO_VALUE if the key was absent
+    public int remove(int key) {
+        if (key == EMPTY) {
+            int previous = hasMinKey ? minKeyValue : NO_VALUE;
+            hasMinKey = false;
+            minKeyValue = NO_VALUE;
+            return previous;
+        }
+        int slot = slot(key);
+        while (true) {
+            int existing = keys[slot];
+            if (existing == EMPTY) {
+                return NO_VALUE;
+            }
+            if (existing == key) {
+                int previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasMinKey = false;
+        minKeyValue = NO_VALUE;
+    }
+
+    // Closes the gap left at 'free' by moving later entries of the same probe run back, so lookups need no tombstones
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == EMPTY) {
+                keys[free] = EMPTY;
+                return;
+            }
+            int home = slot(key);
+            // Move the entry if its home slot is not in the cyclic range (free, slot]
+            boolean movable = free <= slot ? (home <= free || home > slot) : (home <= free && home > slot);
+            if (movable) {
+                keys[free] = key;
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+// Per-operation latency histograms and counters for the DAO and import/export paths, exposed over JMX.
+// Recording is a couple of atomic adds into preallocated arrays, so it allocates nothing.
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+enum OperationMetrics implements OperationMetricsMBean {
+    ADD_STUDENT("addStudent"),
+    ADD_STUDENTS("addStudents"),
+    GET_STUDENT_BY_ID("getStudentById"),
+    GET_ALL_STUDENTS("getAllStudents"),
+    STREAM_ALL_STUDENTS("streamAllStudents"),
+    STREAM_BY_GRADE("streamStudentsByGrade"),
+    STREAM_SORTED_BY_NAME("streamStudentsSortedByName"),
+    GET_STUDENTS_PAGE("getStudentsPage"),
+    COUNT_BY_GRADE("countStudentsByGrade"),
+    STREAM_CHANGES("streamChanges"),
+    RESERVE_CHANGE_WATERMARK("reserveChangeWatermark"),
+    GET_EXPORT_CHECKPOINT("getExportCheckpoint"),
+    SAVE_EXPORT_CHECKPOINT("saveExportCheckpoint"),
+    UPDATE_STUDENT("updateStudent"),
+    DELETE_STUDENT("deleteStudent"),
+    UPDATE_STUDENTS("updateStudents"),
+    DELETE_STUDENTS("deleteStudents"),
+    IMPORT_FILE("importFile"),
+    EXPORT_FILE("exportFile"),
+    WRITE_BEHIND_FLUSH("writeBehindFlush"),
+    SEARCH("search");
+
+    // Log-linear buckets: 16 sub-buckets per power of two, so any reading is within ~6% of the true value
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String operationName;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private volatile long sinceNanos = System.nanoTime();
+
+    OperationMetrics(String operationName) {
+        this.operationName = operationName;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    // Records the latency of one call that started at startNanos (a System.nanoTime() reading)
+    public void recordLatency(long startNanos) {
+        long elapsed = Math.max(0, System.nanoTime() - startNanos);
+        buckets.incrementAndGet(bucketIndex(elapsed));
+        count.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulate(elapsed);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        long elapsed = System.nanoTime() - sinceNanos;
+        return elapsed <= 0 ? 0.0 : count.sum() * 1_000_000_000.0 / elapsed;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0.0 : totalNanos.sum() / 1000.0 / calls;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileNanos(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileNanos(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentileNanos(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        errors.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        sinceNanos = System.nanoTime();
+    }
+
+    private long percentileNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // Registers one MBean per operation as sms:type=Operation,name=<operation>
+    static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics metrics : values()) {
+            try {
+                ObjectName name = new ObjectName("sms:type=Operation,name=" + metrics.operationName);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new StandardMBean(metrics, OperationMetricsMBean.class), name);
+                }
+            } catch (JMException e) {
+                System.err.println("Error registering metrics MBean for " + metrics.operationName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Text table of every operation that has been called at least once
+    static String dump() {
+        StringBuilder out = new StringBuilder(String.format("%-28s %10s %7s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "mean us", "p50 us", "p99 us", "p999 us", "max us"));
+        for (OperationMetrics metrics : values()) {
+            if (metrics.getCount() == 0 && metrics.getErrorCount() == 0) {
+                continue;
+            }
+            out.append(String.format("%-28s %10d %7d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    metrics.operationName, metrics.getCount(), metrics.getErrorCount(),
+                    metrics.getThroughputPerSecond(), metrics.getMeanMicros(), metrics.getP50Micros(),
+                    metrics.getP99Micros(), metrics.getP999Micros(), metrics.getMaxMicros()));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,20 @@
+// JMX view of one OperationMetrics entry (JMX requires the interface to be public)
+public interface OperationMetricsMBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getThroughputPerSecond();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,211 @@
+// Runs a StudentTask over a stream of students on a work-stealing pool sized to the machine
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+class ProcessingEngine implements AutoCloseable {
+    static final int DEFAULT_BATCH_SIZE = 256;
+    static final int MAX_REPORTED_ERRORS = 20;
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final int maxInFlightBatches;
+
+    ProcessingEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    ProcessingEngine(int parallelism, int batchSize) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("parallelism and batchSize must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+        // Enough queued work to keep every worker busy while the producer reads the next batches
+        this.maxInFlightBatches = parallelism * 4;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Reads students on the calling thread and hands them to the pool in batches. At most
+    // maxInFlightBatches batches are queued or running, so a slow task throttles the cursor
+    // instead of letting the whole table pile up in memory. Task results are folded with the
+    // collector: one container per batch, combined once all batches are done.
+    public <R, A, T> ProcessingResult<T> process(Iterator<Student> students, StudentTask<R> task,
+                                                 Collector<? super R, A, T> collector) {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        Phaser pending = new Phaser(1);
+        Queue<A> partials = new ConcurrentLinkedQueue<>();
+        Stats stats = new Stats();
+        Supplier<A> supplier = collector.supplier();
+        BiConsumer<A, ? super R> accumulator = collector.accumulator();
+
+        boolean interrupted = false;
+        try {
+            while (students.hasNext()) {
+                List<Student> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && students.hasNext()) {
+                    batch.add(students.next());
+                }
+                inFlight.acquire();
+                pending.register();
+                try {
+                    pool.execute(() -> {
+                        try {
+                            A container = supplier.get();
+                            for (Student student : batch) {
+                                runTask(task, student, container, accumulator, stats);
+                            }
+                            partials.add(container);
+                        } finally {
+                            inFlight.release();
+                            pending.arriveAndDeregister();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    pending.arriveAndDeregister();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interrupted = true;
+        } finally {
+            // Also on a failing source iterator, so no submitted batch is still running when this returns or throws
+            pending.arriveAndAwaitAdvance();
+        }
+
+        BinaryOperator<A> combiner = collector.combiner();
+        A combined = supplier.get();
+        for (A partial : partials) {
+            combined = combiner.apply(combined, partial);
+        }
+        @SuppressWarnings("unchecked")
+        T value = collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+                ? (T) combined : collector.finisher().apply(combined);
+        return new ProcessingResult<>(value, stats, System.nanoTime() - start, interrupted);
+    }
+
+    private static <R, A> void runTask(StudentTask<R> task, Student student, A container,
+                                       BiConsumer<A, ? super R> accumulator, Stats stats) {
+        long taskStart = System.nanoTime();
+        try {
+            accumulator.accept(container, task.process(student));
+            stats.processed.increment();
+        } catch (Exception e) {
+            stats.failed.increment();
+            if (stats.errors.size() < MAX_REPORTED_ERRORS) {
+                stats.errors.add("Student " + student.getId() + ": " + e.getMessage());
+            }
+        } finally {
+            long elapsed = System.nanoTime() - taskStart;
+            stats.taskNanos.add(elapsed);
+            stats.maxTaskNanos.accumulate(elapsed);
+            stats.minTaskNanos.accumulate(elapsed);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static class Stats {
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder taskNanos = new LongAdder();
+        private final LongAccumulator maxTaskNanos = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator minTaskNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+    }
+
+    static class ProcessingResult<T> {
+        private final T value;
+        private final long processed;
+        private final long failed;
+        private final List<String> errors;
+        private final long elapsedNanos;
+        private final long totalTaskNanos;
+        private final long minTaskNanos;
+        private final long maxTaskNanos;
+        private final boolean interrupted;
+
+        private ProcessingResult(T value, Stats stats, long elapsedNanos, boolean interrupted) {
+            this.value = value;
+            this.processed = stats.processed.sum();
+            this.failed = stats.failed.sum();
+            this.errors = Collections.unmodifiableList(new ArrayList<>(stats.errors));
+            this.elapsedNanos = elapsedNanos;
+            this.totalTaskNanos = stats.taskNanos.sum();
+            this.minTaskNanos = processed + failed == 0 ? 0 : stats.minTaskNanos.get();
+            this.maxTaskNanos = stats.maxTaskNanos.get();
+            this.interrupted = interrupted;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        // At most MAX_REPORTED_ERRORS messages
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getAverageTaskNanos() {
+            long tasks = processed + failed;
+            return tasks == 0 ? 0 : totalTaskNanos / tasks;
+        }
+
+        public long getMinTaskNanos() {
+            return minTaskNanos;
+        }
+
+        public long getMaxTaskNanos() {
+            return maxTaskNanos;
+        }
+
+        public double getStudentsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : (processed + failed) * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public boolean isInterrupted() {
+            return interrupted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ProcessingResult{processed=%d, failed=%d, elapsed=%.1f ms, studentsPerSecond=%.0f, " +
+                            "task avg=%.1f us, min=%.1f us, max=%.1f us}", processed, failed, elapsedNanos / 1_000_000.0,
+                    getStudentsPerSecond(), getAverageTaskNanos() / 1000.0, minTaskNanos / 1000.0,
+                    maxTaskNanos / 1000.0);
+        }
+    }
+}
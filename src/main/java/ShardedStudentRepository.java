@@ -0,0 +1,560 @@
+// Students partitioned by ID hash across several independent H2 databases, one StudentDAO and connection pool
+// per shard. Single-ID operations go to the owning shard; scans run on every shard at once and are gathered,
+// with a k-way merge on (name, id) wherever the result has to be sorted.
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class ShardedStudentRepository implements StudentRepository, AutoCloseable {
+    static final int DEFAULT_SHARDS = 4;
+    // Rows are handed from a shard's reader thread to the merging thread in chunks, a few chunks ahead at most
+    private static final int CHUNK_SIZE = 256;
+    private static final int PREFETCH_CHUNKS = 4;
+    private static final List<Student> END = new ArrayList<>();
+
+    // The same order as the DAO's ORDER BY name, id (H2 sorts NULLs first)
+    static final Comparator<Student> BY_NAME_THEN_ID = Comparator
+            .comparing(Student::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparingInt(Student::getId);
+
+    private final DatabaseConnection[] databases;
+    private final StudentDAO[] shards;
+    private final LongAdder[] routed;
+    private final LongAdder scatters = new LongAdder();
+    // Unbounded on purpose: a gather parks one reader per shard, and a caller may hold several gathers open
+    private final ExecutorService workers;
+
+    ShardedStudentRepository(int shardCount, int fetchSize) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shardCount);
+        }
+        databases = new DatabaseConnection[shardCount];
+        shards = new StudentDAO[shardCount];
+        routed = new LongAdder[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            databases[i] = DatabaseConnection.openShard(i);
+            shards[i] = new StudentDAO(databases[i], fetchSize);
+            routed[i] = new LongAdder();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "student-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // -Dsms.shards sets the shard count; each shard's database settings come from DatabaseConfig.loadShard
+    public static ShardedStudentRepository fromSystemProperties() {
+        return new ShardedStudentRepository(Integer.getInteger("sms.shards", DEFAULT_SHARDS),
+                Integer.getInteger("sms.dao.fetchSize", StudentDAO.DEFAULT_FETCH_SIZE));
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Creates or upgrades the schema on every shard; returns how many shards needed DDL
+    public int initializeSchemas() throws SQLException {
+        int upgraded = 0;
+        for (DatabaseConnection database : databases) {
+            try (Connection connection = database.getConnection()) {
+                if (StudentSchema.ensure(connection) != StudentSchema.VERSION) {
+                    upgraded++;
+                }
+            }
+        }
+        return upgraded;
+    }
+
+    public boolean isPersistent() {
+        return databases[0].getConfig().isPersistent();
+    }
+
+    // Connections available across all shard pools
+    public int getConnectionCapacity() {
+        int capacity = 0;
+        for (DatabaseConnection database : databases) {
+            capacity += database.getConfig().getPoolMaxSize();
+        }
+        return capacity;
+    }
+
+    // The multiplier spreads sequential and strided IDs alike; a plain id % shards would put every
+    // multiple of the shard count on one shard
+    int shardOf(int id) {
+        int hash = id * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private StudentDAO route(int id) {
+        int shard = shardOf(id);
+        routed[shard].increment();
+        return shards[shard];
+    }
+
+    @Override
+    public boolean addStudent(Student student) {
+        return route(student.getId()).addStudent(student);
+    }
+
+    @Override
+    public Student getStudentById(int id) {
+        return route(id).getStudentById(id);
+    }
+
+    @Override
+    public boolean updateStudent(Student student) {
+        return route(student.getId()).updateStudent(student);
+    }
+
+    @Override
+    public boolean deleteStudent(int id) {
+        return route(id).deleteStudent(id);
+    }
+
+    // Students are bucketed by shard; whenever one bucket is full, all buckets are written in parallel
+    @Override
+    public BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert) {
+        BulkImportResult result = new BulkImportResult();
+        List<List<Student>> buckets = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            buckets.add(new ArrayList<>(batchSize));
+        }
+        while (students.hasNext()) {
+            Student student = students.next();
+            int shard = shardOf(student.getId());
+            routed[shard].increment();
+            List<Student> bucket = buckets.get(shard);
+            bucket.add(student);
+            if (bucket.size() >= batchSize) {
+                writeBuckets(buckets, batchSize, upsert, result);
+            }
+        }
+        writeBuckets(buckets, batchSize, upsert, result);
+        return result;
+    }
+
+    private void writeBuckets(List<List<Student>> buckets, int batchSize, boolean upsert, BulkImportResult result) {
+        List<Future<BulkImportResult>> writes = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            List<Student> bucket = buckets.get(i);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            StudentDAO shard = shards[i];
+            writes.add(workers.submit(() -> shard.addStudents(bucket.iterator(), batchSize, upsert)));
+            buckets.set(i, new ArrayList<>(batchSize));
+        }
+        for (Future<BulkImportResult> write : writes) {
+            result.merge(await(write));
+        }
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        List<Student> students = new ArrayList<>();
+        for (List<Student> shardStudents : onAllShards(StudentDAO::getAllStudents)) {
+            students.addAll(shardStudents);
+        }
+        return students;
+    }
+
+    // Rows come back in whatever order the shards produce them
+    @Override
+    public Stream<Student> streamAllStudents() {
+        return gather(StudentDAO::streamAllStudents, null);
+    }
+
+    @Override
+    public Stream<Student> streamStudentsByGrade(int grade) {
+        return gather(shard -> shard.streamStudentsByGrade(grade), BY_NAME_THEN_ID);
+    }
+
+    @Override
+    public Stream<Student> streamStudentsSortedByName() {
+        return gather(StudentDAO::streamStudentsSortedByName, BY_NAME_THEN_ID);
+    }
+
+    // Each shard returns its own first 'limit' rows after the cursor; the global page is the first 'limit' of those
+    @Override
+    public List<Student> getStudentsPage(Integer grade, Student after, int limit) {
+        List<Student> candidates = new ArrayList<>();
+        for (List<Student> page : onAllShards(shard -> shard.getStudentsPage(grade, after, limit))) {
+            candidates.addAll(page);
+        }
+        return candidates.stream().sorted(BY_NAME_THEN_ID).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Integer, Long> countStudentsByGrade() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (Map<Integer, Long> shardCounts : onAllShards(StudentDAO::countStudentsByGrade)) {
+            if (shardCounts == null) {
+                return null;
+            }
+            shardCounts.forEach((grade, count) -> counts.merge(grade, count, Long::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public int updateStudents(StudentFilter filter, GradeChange change) {
+        int updated = 0;
+        for (int count : onAllShards(shard -> shard.updateStudents(filter, change))) {
+            updated += count;
+        }
+        return updated;
+    }
+
+    @Override
+    public int deleteStudents(StudentFilter filter) {
+        int deleted = 0;
+        for (int count : onAllShards(shard -> shard.deleteStudents(filter))) {
+            deleted += count;
+        }
+        return deleted;
+    }
+
+    // Events arrive from whichever thread wrote to a shard, so listeners see writes from several shards at once
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        for (StudentDAO shard : shards) {
+            shard.addChangeListener(listener);
+        }
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        for (StudentDAO shard : shards) {
+            shard.removeChangeListener(listener);
+        }
+    }
+
+    // Runs call on every shard in parallel and returns the results in shard order
+    private <T> List<T> onAllShards(Function<StudentDAO, T> call) {
+        scatters.increment();
+        List<Future<T>> calls = new ArrayList<>(shards.length);
+        for (StudentDAO shard : shards) {
+            calls.add(workers.submit(() -> call.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        for (Future<T> future : calls) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Shard call failed", e.getCause());
+        }
+    }
+
+    // Opens query on every shard at once, each read by a worker thread into a bounded queue of chunks. Unordered
+    // gathers share one queue and hand chunks out as they arrive; ordered ones keep a queue per shard and
+    // k-way merge the heads. Closing the stream stops the readers and closes their cursors.
+    private Stream<Student> gather(Function<StudentDAO, Stream<Student>> query, Comparator<Student> order) {
+        scatters.increment();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        BlockingQueue<List<Student>> shared = order == null
+                ? new ArrayBlockingQueue<>(PREFETCH_CHUNKS * shards.length) : null;
+        List<BlockingQueue<List<Student>>> queues = new ArrayList<>(shards.length);
+        for (StudentDAO shard : shards) {
+            BlockingQueue<List<Student>> queue = shared != null ? shared : new ArrayBlockingQueue<>(PREFETCH_CHUNKS);
+            queues.add(queue);
+            workers.execute(() -> read(shard, query, queue, cancelled));
+        }
+        Iterator<Student> students = order == null
+                ? new ConcatIterator(shared, shards.length)
+                : new MergeIterator(queues, order);
+        int characteristics = order == null ? Spliterator.NONNULL : Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(students, characteristics), false)
+                .onClose(() -> cancelled.set(true));
+    }
+
+    private static void read(StudentDAO shard, Function<StudentDAO, Stream<Student>> query,
+                             BlockingQueue<List<Student>> queue, AtomicBoolean cancelled) {
+        List<Student> last = END;
+        try (Stream<Student> students = query.apply(shard)) {
+            Iterator<Student> rows = students.iterator();
+            List<Student> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (rows.hasNext() && !cancelled.get()) {
+                chunk.add(rows.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    if (!offer(queue, chunk, cancelled)) {
+                        return;
+                    }
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                offer(queue, chunk, cancelled);
+            }
+        } catch (RuntimeException e) {
+            last = new FailedChunk(e);
+        } finally {
+            offer(queue, last, cancelled);
+        }
+    }
+
+    // Waits for room in the queue, giving up once the consumer has closed the stream
+    private static boolean offer(BlockingQueue<List<Student>> queue, List<Student> chunk, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(chunk, 50, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    // A shard that failed sends a FailedChunk in place of END, which fails the whole gather here
+    private static List<Student> take(BlockingQueue<List<Student>> queue) {
+        List<Student> chunk;
+        try {
+            chunk = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading shards", e);
+        }
+        if (chunk instanceof FailedChunk) {
+            RuntimeException failure = ((FailedChunk) chunk).failure;
+            throw new IllegalStateException("Error reading shard: " + failure.getMessage(), failure);
+        }
+        return chunk;
+    }
+
+    private static class FailedChunk extends AbstractList<Student> {
+        private final RuntimeException failure;
+
+        FailedChunk(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public Student get(int index) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    // Chunks from all shards in arrival order, until every shard has sent END
+    private static class ConcatIterator implements Iterator<Student> {
+        private final BlockingQueue<List<Student>> queue;
+        private int running;
+        private List<Student> chunk = END;
+        private int position;
+
+        ConcatIterator(BlockingQueue<List<Student>> queue, int shards) {
+            this.queue = queue;
+            this.running = shards;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == chunk.size()) {
+                if (running == 0) {
+                    return false;
+                }
+                chunk = take(queue);
+                position = 0;
+                if (chunk == END) {
+                    running--;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Student next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.get(position++);
+        }
+    }
+
+    // K-way merge of per-shard sorted runs: the heap holds the current head of each shard that still has rows
+    private static class MergeIterator implements Iterator<Student> {
+        private final List<Cursor> cursors = new ArrayList<>();
+        private final PriorityQueue<Cursor> heads;
+
+        MergeIterator(List<BlockingQueue<List<Student>>> queues, Comparator<Student> order) {
+            heads = new PriorityQueue<>(queues.size(), (a, b) -> order.compare(a.head, b.head));
+            for (BlockingQueue<List<Student>> queue : queues) {
+                cursors.add(new Cursor(queue));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Heads are filled on first use so creating the stream does not wait for the slowest shard
+            if (!cursors.isEmpty()) {
+                for (Cursor cursor : cursors) {
+                    if (cursor.advance()) {
+                        heads.add(cursor);
+                    }
+                }
+                cursors.clear();
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Student next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Cursor cursor = heads.poll();
+            Student student = cursor.head;
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+            return student;
+        }
+
+        private static class Cursor {
+            private final BlockingQueue<List<Student>> queue;
+            private List<Student> chunk = new ArrayList<>();
+            private int position;
+            private Student head;
+
+            Cursor(BlockingQueue<List<Student>> queue) {
+                this.queue = queue;
+            }
+
+            boolean advance() {
+                while (position == chunk.size()) {
+                    if (chunk == END) {
+                        return false;
+                    }
+                    chunk = take(queue);
+                    position = 0;
+                }
+                head = chunk.get(position++);
+                return true;
+            }
+        }
+    }
+
+    // Rows per shard (one COUNT per shard, in parallel) next to how many single-ID operations each shard served
+    public ShardStats getShardStats() {
+        long[] rows = new long[shards.length];
+        List<Map<Integer, Long>> counts = onAllShards(StudentDAO::countStudentsByGrade);
+        for (int i = 0; i < shards.length; i++) {
+            Map<Integer, Long> shardCounts = counts.get(i);
+            rows[i] = shardCounts == null ? -1 : shardCounts.values().stream().mapToLong(Long::longValue).sum();
+        }
+        long[] operations = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            operations[i] = routed[i].sum();
+        }
+        List<ConnectionPool.PoolStats> pools = new ArrayList<>(shards.length);
+        for (DatabaseConnection database : databases) {
+            pools.add(database.getPoolStats());
+        }
+        return new ShardStats(rows, operations, scatters.sum(), pools);
+    }
+
+    // Stops the shard workers and closes every shard's pool
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        for (DatabaseConnection database : databases) {
+            database.shutdown();
+        }
+    }
+
+    static class ShardStats {
+        private final long[] rows;
+        private final long[] routedOperations;
+        private final long scatters;
+        private final List<ConnectionPool.PoolStats> pools;
+
+        ShardStats(long[] rows, long[] routedOperations, long scatters, List<ConnectionPool.PoolStats> pools) {
+            this.rows = rows;
+            this.routedOperations = routedOperations;
+            this.scatters = scatters;
+            this.pools = pools;
+        }
+
+        public long getRows(int shard) {
+            return rows[shard];
+        }
+
+        public long getRoutedOperations(int shard) {
+            return routedOperations[shard];
+        }
+
+        // Largest shard relative to the mean shard size; 1.0 is a perfectly even spread
+        public double getRowSkew() {
+            return skew(rows);
+        }
+
+        public double getOperationSkew() {
+            return skew(routedOperations);
+        }
+
+        private static double skew(long[] values) {
+            long total = 0;
+            long max = 0;
+            for (long value : values) {
+                total += Math.max(0, value);
+                max = Math.max(max, value);
+            }
+            return total == 0 ? 1.0 : max / ((double) total / values.length);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                    "ShardStats{shards=%d, rowSkew=%.2f, operationSkew=%.2f, scatters=%d}",
+                    rows.length, getRowSkew(), getOperationSkew(), scatters));
+            for (int i = 0; i < rows.length; i++) {
+                text.append(String.format("%n  shard %d: rows=%d, routedOperations=%d, pool=%s",
+                        i, rows[i], routedOperations[i], pools.get(i)));
+            }
+            return text.toString();
+        }
+    }
+}
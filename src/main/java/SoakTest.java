@@ -0,0 +1,376 @@
+// Soak test: seeds synthetic students, then runs a weighted mix of add/get/update/delete/filter operations
+// against a repository at a fixed concurrency (and optionally a fixed rate), printing throughput and latency
+// percentiles for every reporting interval and a per-operation summary at the end.
+// Run with: mvn -Psoak package exec:java  (or java -cp target/classes:<h2.jar> SoakTest)
+// Settings: -Dsoak.backend=jdbc|columnar|sharded, -Dsoak.students, -Dsoak.gradeWeights (12 weights for grades 1-12),
+//           -Dsoak.hotKeyFraction / -Dsoak.hotKeyShare (e.g. 0.1 / 0.9: 90% of keyed operations hit 10% of IDs),
+//           -Dsoak.mix=get:70,update:15,add:5,delete:5,filter:5, -Dsoak.threads, -Dsoak.rate (ops/s, 0 = unthrottled),
+//           -Dsoak.durationSeconds, -Dsoak.reportSeconds, -Dsoak.filterLimit
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+public class SoakTest {
+    private enum Operation { GET, UPDATE, ADD, DELETE, FILTER }
+
+    private final StudentRepository repository;
+    private final StudentDataGenerator generator;
+    private final int seedStudents;
+    private final double hotKeyFraction;
+    private final double hotKeyShare;
+    private final int[] cumulativeMix = new int[Operation.values().length];
+    private final int threads;
+    private final long rate;
+    private final long durationNanos;
+    private final long reportNanos;
+    private final int filterLimit;
+
+    // New students get IDs above the seeded ones; keyed operations pick from everything handed out so far
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    // Intended start times for rate-limited runs are slot * interval from the start of the run
+    private final AtomicLong nextSlot = new AtomicLong();
+    private final Histogram[] totals = new Histogram[Operation.values().length];
+    private final AtomicReference<Histogram> interval = new AtomicReference<>(new Histogram());
+    // Repositories throw on storage failures; an add of a never-used ID that comes back rejected counts as one too
+    private final LongAdder errors = new LongAdder();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+    // Gets, updates and deletes of IDs that are not stored
+    private final LongAdder misses = new LongAdder();
+
+    SoakTest(StudentRepository repository) {
+        this.repository = repository;
+        this.generator = new StudentDataGenerator(System.getProperty("soak.gradeWeights",
+                StudentDataGenerator.DEFAULT_GRADE_WEIGHTS));
+        this.seedStudents = Integer.getInteger("soak.students", 1_000_000);
+        this.hotKeyFraction = Double.parseDouble(System.getProperty("soak.hotKeyFraction", "0.1"));
+        this.hotKeyShare = Double.parseDouble(System.getProperty("soak.hotKeyShare", "0.9"));
+        this.threads = Integer.getInteger("soak.threads", 32);
+        this.rate = Long.getLong("soak.rate", 0L);
+        this.durationNanos = Long.getLong("soak.durationSeconds", 60L) * 1_000_000_000L;
+        this.reportNanos = Long.getLong("soak.reportSeconds", 5L) * 1_000_000_000L;
+        this.filterLimit = Integer.getInteger("soak.filterLimit", 100);
+        parseMix(System.getProperty("soak.mix", "get:70,update:15,add:5,delete:5,filter:5"));
+        if (hotKeyFraction <= 0 || hotKeyFraction > 1 || hotKeyShare < 0 || hotKeyShare > 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid soak settings: hotKeyFraction=" + hotKeyFraction +
+                    ", hotKeyShare=" + hotKeyShare + ", threads=" + threads);
+        }
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new Histogram();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String backend = System.getProperty("soak.backend", "jdbc");
+        StudentRepository repository;
+        switch (backend) {
+            case "jdbc":
+                repository = new StudentDAO();
+                try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+                    StudentSchema.ensure(connection);
+                }
+                break;
+            case "columnar":
+                repository = new ColumnarStudentStore();
+                break;
+            case "sharded":
+                repository = ShardedStudentRepository.fromSystemProperties();
+                ((ShardedStudentRepository) repository).initializeSchemas();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown soak.backend: " + backend +
+                        " (expected jdbc, columnar or sharded)");
+        }
+        try {
+            new SoakTest(repository).run();
+        } finally {
+            if (repository instanceof ShardedStudentRepository) {
+                System.out.println(((ShardedStudentRepository) repository).getShardStats());
+                ((ShardedStudentRepository) repository).close();
+            } else if (repository instanceof StudentDAO) {
+                DatabaseConnection.getInstance().shutdown();
+            }
+        }
+    }
+
+    private void parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Invalid soak.mix entry: '" + part.trim() + "'");
+            }
+            weights[Operation.valueOf(entry[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(entry[1].trim());
+        }
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulativeMix[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("soak.mix needs at least one positive weight: " + mix);
+        }
+    }
+
+    private void run() throws InterruptedException {
+        seed();
+        System.out.printf("Running for %d s with %d threads, %s, mix=%s, hot keys: %.0f%% of operations on %.0f%% of IDs%n",
+                durationNanos / 1_000_000_000L, threads, rate > 0 ? "target " + rate + " ops/s" : "unthrottled",
+                System.getProperty("soak.mix", "get:70,update:15,add:5,delete:5,filter:5"),
+                hotKeyShare * 100, hotKeyFraction * 100);
+        System.out.printf("%8s %10s %8s %8s %10s %10s %10s %10s%n",
+                "time s", "ops/s", "errors", "misses", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work(start, deadline);
+                } finally {
+                    done.countDown();
+                }
+            }, "soak-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long intervalStart = start;
+        long lastErrors = 0;
+        long lastMisses = 0;
+        boolean finished = false;
+        while (!finished) {
+            finished = done.await(Math.max(1, intervalStart + reportNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            long now = System.nanoTime();
+            Histogram window = interval.getAndSet(new Histogram());
+            if (finished && window.count() == 0) {
+                break;
+            }
+            long errorCount = errors.sum();
+            long missCount = misses.sum();
+            System.out.printf("%8.1f %10.0f %8d %8d %10.3f %10.3f %10.3f %10.3f%n",
+                    (now - start) / 1e9, window.count() * 1e9 / Math.max(1, now - intervalStart),
+                    errorCount - lastErrors, missCount - lastMisses, window.percentileMillis(0.50),
+                    window.percentileMillis(0.99), window.percentileMillis(0.999), window.maxMillis());
+            intervalStart = now;
+            lastErrors = errorCount;
+            lastMisses = missCount;
+        }
+        report(System.nanoTime() - start);
+    }
+
+    // Upserts IDs 1..soak.students in bulk batches
+    private void seed() {
+        if (seedStudents <= 0) {
+            return;
+        }
+        System.out.printf("Seeding %,d students...%n", seedStudents);
+        long start = System.nanoTime();
+        BulkImportResult result = repository.addStudents(generator.students(1, seedStudents, 42),
+                StudentRepository.DEFAULT_BATCH_SIZE, true);
+        long elapsed = System.nanoTime() - start;
+        nextId.set(seedStudents + 1);
+        System.out.printf("Seeded in %,d ms (%,.0f rows/s): %s%n", elapsed / 1_000_000,
+                seedStudents * 1e9 / elapsed, result);
+    }
+
+    private void work(long start, long deadline) {
+        Random random = ThreadLocalRandom.current();
+        long intervalNanos = rate > 0 ? 1_000_000_000L / rate : 0;
+        while (true) {
+            // With a target rate every operation has an intended start time, and latency is measured from it,
+            // so a stalled store shows up as latency instead of as a quietly lower request rate
+            long intended = System.nanoTime();
+            if (intervalNanos > 0) {
+                intended = start + nextSlot.getAndIncrement() * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (intended >= deadline || System.nanoTime() >= deadline) {
+                return;
+            }
+            Operation operation = pickOperation(random);
+            try {
+                execute(operation, random);
+            } catch (RuntimeException e) {
+                errors.increment();
+                firstError.compareAndSet(null, operation + ": " + e);
+            }
+            long latency = System.nanoTime() - intended;
+            totals[operation.ordinal()].record(latency);
+            interval.get().record(latency);
+        }
+    }
+
+    private void execute(Operation operation, Random random) {
+        switch (operation) {
+            case GET:
+                if (repository.getStudentById(pickKey(random)) == null) {
+                    misses.increment();
+                }
+                break;
+            case UPDATE:
+                if (!repository.updateStudent(generator.student(pickKey(random), random))) {
+                    misses.increment();
+                }
+                break;
+            case ADD:
+                int id = nextId.getAndIncrement();
+                if (!repository.addStudent(generator.student(id, random))) {
+                    throw new IllegalStateException("Fresh ID " + id + " rejected as a duplicate");
+                }
+                break;
+            case DELETE:
+                if (!repository.deleteStudent(pickKey(random))) {
+                    misses.increment();
+                }
+                break;
+            case FILTER:
+                try (Stream<Student> students = repository.streamStudentsByGrade(generator.grade(random))) {
+                    (filterLimit > 0 ? students.limit(filterLimit) : students).forEach(student -> { });
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unhandled operation " + operation);
+        }
+    }
+
+    private Operation pickOperation(Random random) {
+        int pick = random.nextInt(cumulativeMix[cumulativeMix.length - 1]);
+        int index = 0;
+        while (cumulativeMix[index] <= pick) {
+            index++;
+        }
+        return Operation.values()[index];
+    }
+
+    // Hot keys are the lowest IDs: hotKeyShare of the picks land in the first hotKeyFraction of the ID space
+    private int pickKey(Random random) {
+        int keySpace = Math.max(1, nextId.get() - 1);
+        int hotKeys = Math.max(1, (int) (keySpace * hotKeyFraction));
+        if (random.nextDouble() < hotKeyShare) {
+            return 1 + random.nextInt(hotKeys);
+        }
+        return 1 + random.nextInt(keySpace);
+    }
+
+    private void report(long elapsedNanos) {
+        System.out.printf("%nSummary after %.1f s (%,d errors, %,d operations on missing IDs):%n", elapsedNanos / 1e9,
+                errors.sum(), misses.sum());
+        if (firstError.get() != null) {
+            System.out.println("First error: " + firstError.get());
+        }
+        System.out.printf("%-8s %12s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        List<Histogram> all = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = totals[operation.ordinal()];
+            all.add(histogram);
+            if (histogram.count() > 0) {
+                printRow(operation.name().toLowerCase(), histogram, elapsedNanos);
+            }
+        }
+        printRow("all", Histogram.merge(all), elapsedNanos);
+    }
+
+    private static void printRow(String name, Histogram histogram, long elapsedNanos) {
+        System.out.printf("%-8s %,12d %10.0f %10.3f %10.3f %10.3f %10.3f %10.3f%n", name, histogram.count(),
+                histogram.count() * 1e9 / elapsedNanos, histogram.meanMillis(), histogram.percentileMillis(0.50),
+                histogram.percentileMillis(0.99), histogram.percentileMillis(0.999), histogram.maxMillis());
+    }
+
+    // Log-linear latency histogram, the same bucketing as OperationMetrics (within ~6% of the true value)
+    private static class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketIndex(value));
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double meanMillis() {
+            long calls = count.sum();
+            return calls == 0 ? 0 : totalNanos.sum() / 1e6 / calls;
+        }
+
+        double maxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        double percentileMillis(double percentile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), maxNanos.get()) / 1e6;
+                }
+            }
+            return maxMillis();
+        }
+
+        static Histogram merge(List<Histogram> histograms) {
+            Histogram merged = new Histogram();
+            for (Histogram histogram : histograms) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    merged.buckets.addAndGet(i, histogram.buckets.get(i));
+                }
+                merged.count.add(histogram.count.sum());
+                merged.totalNanos.add(histogram.totalNanos.sum());
+                merged.maxNanos.accumulateAndGet(histogram.maxNanos.get(), Math::max);
+            }
+            return merged;
+        }
+
+        private static int bucketIndex(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        private static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+// Micro-benchmark harness for StudentDAO, import/export and the filter/sort queries.
+// Run with: mvn -Pbenchmark package exec:java  (sizes via -Dbench.sizes=10000,1000000)
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class StudentBenchmark {
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmupIterations", 3);
+    private static final int MEASUREMENT_ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final int CRUD_OPERATIONS = Integer.getInteger("bench.crudOperations", 20_000);
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace", "Linus", "Barbara", "Edsger", "Donald", "Margaret"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Torvalds", "Liskov", "Dijkstra", "Knuth"};
+
+    // Multi-threaded cases need allocation summed over every thread, including importer workers that have exited
+    // by the time the measurement ends. Only the JVM-wide counter (JDK 21+) sees those; the build targets Java 11,
+    // so it is looked up reflectively, and without it those cases report no allocation figures.
+    private static final Method TOTAL_ALLOCATED_BYTES = totalAllocatedBytesMethod();
+
+    private final StudentDAO dao = new StudentDAO();
+    private final List<Result> results = new ArrayList<>();
+
+    // One timed iteration; returns how many operations it performed
+    private interface Iteration {
+        long run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream(System.getProperty("bench.sizes", "10000,1000000").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        StudentBenchmark benchmark = new StudentBenchmark();
+        try {
+            benchmark.runAll(sizes);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+        benchmark.writeResults(Paths.get(System.getProperty("bench.out", "target/benchmark-results.csv")));
+    }
+
+    private void runAll(int[] sizes) throws Exception {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            StudentSchema.ensure(connection);
+        }
+
+        resetTable();
+        AtomicLong nextId = new AtomicLong(1_000_000_000L);
+        measure("addStudent", 0, () -> {
+            for (int i = 0; i < CRUD_OPERATIONS; i++) {
+                dao.addStudent(student((int) nextId.getAndIncrement(), new Random(i)));
+            }
+            return CRUD_OPERATIONS;
+        });
+        int firstId = 1_000_000_000;
+        int addedCount = (int) (nextId.get() - firstId);
+        Random random = new Random(42);
+        measure("getStudentById", addedCount, () -> {
+            for (int i = 0; i < CRUD_OPERATIONS; i++) {
+                dao.getStudentById(firstId + random.nextInt(addedCount));
+            }
+            return CRUD_OPERATIONS;
+        });
+        measure("updateStudent", addedCount, () -> {
+            for (int i = 0; i < CRUD_OPERATIONS; i++) {
+                dao.updateStudent(student(firstId + random.nextInt(addedCount), random));
+            }
+            return CRUD_OPERATIONS;
+        });
+        AtomicLong nextDelete = new AtomicLong(firstId);
+        measure("deleteStudent", addedCount, () -> {
+            int count = (int) Math.min(CRUD_OPERATIONS, nextId.get() - nextDelete.get());
+            for (int i = 0; i < count; i++) {
+                dao.deleteStudent((int) nextDelete.getAndIncrement());
+            }
+            return count;
+        });
+
+        for (int size : sizes) {
+            resetTable();
+            Path csv = Files.createTempFile("students-bench-", ".csv");
+            Path exportFile = Files.createTempFile("students-bench-export-", ".csv");
+            try {
+                writeDataset(csv, size);
+                dao.addStudents(datasetIterator(size), StudentRepository.DEFAULT_BATCH_SIZE, false);
+
+                measure("getAllStudents", size, () -> dao.getAllStudents().size());
+                measure("streamAllStudents", size, () -> {
+                    try (Stream<Student> students = dao.streamAllStudents()) {
+                        return students.count();
+                    }
+                });
+                measure("getStudentsByGrade", size, () -> dao.getStudentsByGrade(random.nextInt(12) + 1).size());
+                measure("streamStudentsSortedByName", size, () -> {
+                    try (Stream<Student> students = dao.streamStudentsSortedByName()) {
+                        return students.count();
+                    }
+                });
+                measure("exportStudentsToFile", size, () -> {
+                    try (Stream<Student> students = dao.streamAllStudents()) {
+                        return new CsvExporter().export(students.iterator(), exportFile, false).getRows();
+                    }
+                });
+                measure("importStudentsFromFile(parse)", size, true, () ->
+                        new CsvImporter().importFile(csv, batch -> { }).getRows());
+                measure("importStudentsFromFile(upsert)", size, true, () -> {
+                    BulkImportResult result = new BulkImportResult();
+                    new CsvImporter().importFile(csv, batch -> result.merge(
+                            dao.addStudents(batch.iterator(), batch.size(), true)));
+                    return result.getInserted() + result.getUpdated();
+                });
+            } finally {
+                Files.deleteIfExists(csv);
+                Files.deleteIfExists(exportFile);
+            }
+        }
+    }
+
+    private void measure(String name, int datasetSize, Iteration iteration) throws Exception {
+        measure(name, datasetSize, false, iteration);
+    }
+
+    private void measure(String name, int datasetSize, boolean multiThreaded, Iteration iteration) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration.run();
+        }
+
+        double[] opsPerSecond = new double[MEASUREMENT_ITERATIONS];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long allocatedBefore = allocatedBytes(multiThreaded);
+        long[] gcBefore = gcCountAndTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long ops = iteration.run();
+            long elapsed = System.nanoTime() - start;
+            opsPerSecond[i] = ops * 1_000_000_000.0 / elapsed;
+            totalOps += ops;
+            totalNanos += elapsed;
+        }
+        long allocatedAfter = allocatedBytes(multiThreaded);
+        long[] gcAfter = gcCountAndTime();
+
+        long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        Result result = new Result(name, datasetSize, opsPerSecond, totalNanos / Math.max(1, totalOps),
+                multiThreaded ? "all threads" : "caller thread",
+                allocated < 0 ? -1 : allocated / Math.max(1, totalOps),
+                allocated < 0 ? Double.NaN : allocated * 1_000_000_000.0 / totalNanos / (1 << 20),
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        results.add(result);
+        System.out.println(result);
+    }
+
+    private static Method totalAllocatedBytesMethod() {
+        try {
+            return com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    // Bytes allocated so far by the calling thread, or by all threads; -1 when the JVM cannot tell
+    private static long allocatedBytes(boolean allThreads) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!allThreads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        if (TOTAL_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) TOTAL_ALLOCATED_BYTES.invoke(threads);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static long[] gcCountAndTime() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    private void resetTable() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE students");
+        }
+    }
+
+    private static void writeDataset(Path path, int size) throws IOException {
+        new CsvExporter().export(datasetIterator(size), path, false);
+    }
+
+    // Deterministic synthetic roster, so runs are comparable across builds
+    private static Iterator<Student> datasetIterator(int size) {
+        Random random = new Random(size);
+        return new Iterator<Student>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= size;
+            }
+
+            @Override
+            public Student next() {
+                return student(next++, random);
+            }
+        };
+    }
+
+    private static Student student(int id, Random random) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        return new Student(id, first + " " + last, first.toLowerCase() + "." + last.toLowerCase() + id + "@school.edu",
+                random.nextInt(12) + 1);
+    }
+
+    private void writeResults(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("benchmark,datasetSize,opsPerSecond,opsPerSecondStdDev,nsPerOp,allocScope,allocBytesPerOp," +
+                    "allocMbPerSecond,gcCount,gcTimeMs");
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+        System.out.println("Results written to " + path);
+    }
+
+    private static class Result {
+        private final String name;
+        private final int datasetSize;
+        private final double meanOpsPerSecond;
+        private final double stdDevOpsPerSecond;
+        private final long nanosPerOp;
+        private final String allocationScope;
+        // -1 and NaN when allocation could not be measured
+        private final long allocatedBytesPerOp;
+        private final double allocationMbPerSecond;
+        private final long gcCount;
+        private final long gcTimeMillis;
+
+        Result(String name, int datasetSize, double[] opsPerSecond, long nanosPerOp, String allocationScope,
+               long allocatedBytesPerOp, double allocationMbPerSecond, long gcCount, long gcTimeMillis) {
+            this.name = name;
+            this.datasetSize = datasetSize;
+            this.meanOpsPerSecond = Arrays.stream(opsPerSecond).average().orElse(0);
+            this.stdDevOpsPerSecond = Math.sqrt(Arrays.stream(opsPerSecond)
+                    .map(ops -> (ops - meanOpsPerSecond) * (ops - meanOpsPerSecond)).average().orElse(0));
+            this.nanosPerOp = nanosPerOp;
+            this.allocationScope = allocationScope;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+            this.allocationMbPerSecond = allocationMbPerSecond;
+            this.gcCount = gcCount;
+            this.gcTimeMillis = gcTimeMillis;
+        }
+
+        String toCsv() {
+            boolean measured = allocatedBytesPerOp >= 0;
+            return String.format("%s,%d,%.1f,%.1f,%d,%s,%s,%s,%d,%d", name, datasetSize, meanOpsPerSecond,
+                    stdDevOpsPerSecond, nanosPerOp, allocationScope,
+                    measured ? String.valueOf(allocatedBytesPerOp) : "",
+                    measured ? String.format("%.1f", allocationMbPerSecond) : "", gcCount, gcTimeMillis);
+        }
+
+        @Override
+        public String toString() {
+            String allocation = allocatedBytesPerOp >= 0
+                    ? String.format("%,8d B/op (%s) %,8.1f MB/s", allocatedBytesPerOp, allocationScope,
+                            allocationMbPerSecond)
+                    : "allocation n/a (" + allocationScope + " needs JDK 21+)";
+            return String.format("%-32s size=%-9d %,14.1f ops/s +/- %,.1f  %,10d ns/op  %s  gc=%d (%d ms)", name,
+                    datasetSize, meanOpsPerSecond, stdDevOpsPerSecond, nanosPerOp, allocation, gcCount, gcTimeMillis);
+        }
+    }
+}
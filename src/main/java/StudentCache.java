@@ -0,0 +1,185 @@
+// Bounded LRU cache of students by ID with a time-to-live and hit/miss/eviction counters
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+class StudentCache {
+    private static final int SEGMENTS = 16;
+    // Stored for IDs known to be absent, so duplicate checks on add/import are served from the cache too
+    private static final Student ABSENT = new Student(Integer.MIN_VALUE, null, null, Integer.MIN_VALUE);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    // Bumped on every invalidation; a load only populates the cache if its stripe was not bumped meanwhile
+    private final AtomicLongArray generations = new AtomicLongArray(SEGMENTS);
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    StudentCache(int maxSize, long ttl, TimeUnit ttlUnit) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Cache size must be at least " + SEGMENTS + ": " + maxSize);
+        }
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+    }
+
+    public static StudentCache fromSystemProperties() {
+        return new StudentCache(Integer.getInteger("sms.cache.maxSize", 10_000),
+                Long.getLong("sms.cache.ttlSeconds", 300L), TimeUnit.SECONDS);
+    }
+
+    // Returns the cached student (or null if cached as absent), loading through the loader on a miss
+    public Student get(int id, IntFunction<Student> loader) {
+        int index = segmentIndex(id);
+        Segment segment = segments[index];
+        long now = System.nanoTime();
+        synchronized (segment) {
+            CacheEntry entry = segment.get(id);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.student == ABSENT ? null : entry.student;
+                }
+                segment.remove(id);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        long generation = generations.get(index);
+        Student student = loader.apply(id);
+        synchronized (segment) {
+            if (generations.get(index) == generation) {
+                segment.put(id, new CacheEntry(student == null ? ABSENT : student, System.nanoTime() + ttlNanos));
+            }
+        }
+        return student;
+    }
+
+    public void invalidate(int id) {
+        int index = segmentIndex(id);
+        Segment segment = segments[index];
+        synchronized (segment) {
+            generations.incrementAndGet(index);
+            segment.remove(id);
+        }
+        invalidations.increment();
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            synchronized (segments[i]) {
+                generations.incrementAndGet(i);
+                segments[i].clear();
+            }
+        }
+        invalidations.increment();
+    }
+
+    public CacheStats getStats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(size, hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    private static int segmentIndex(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
+
+    private static class CacheEntry {
+        private final Student student;
+        private final long expiresAt;
+
+        CacheEntry(Student student, long expiresAt) {
+            this.student = student;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Access-ordered map, so the eldest entry is the least recently used one
+    private class Segment extends LinkedHashMap<Integer, CacheEntry> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CacheEntry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static class CacheStats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        CacheStats(int size, long hits, long misses, long evictions, long expirations, long invalidations) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getExpirations() {
+            return expirations;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CacheStats{size=%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, " +
+                            "expirations=%d, invalidations=%d}", size, hits, misses, getHitRate() * 100,
+                    evictions, expirations, invalidations);
+        }
+    }
+}
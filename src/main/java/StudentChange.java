@@ -0,0 +1,49 @@
+// One entry of the change journal: the stored student after an insert/update, or a delete tombstone
+class StudentChange {
+    enum Type {
+        UPSERT,
+        DELETE
+    }
+
+    private final Type type;
+    private final int id;
+    private final Student student;
+    private final long version;
+
+    private StudentChange(Type type, int id, Student student, long version) {
+        this.type = type;
+        this.id = id;
+        this.student = student;
+        this.version = version;
+    }
+
+    static StudentChange upsert(Student student, long version) {
+        return new StudentChange(Type.UPSERT, student.getId(), student, version);
+    }
+
+    static StudentChange delete(int id, long version) {
+        return new StudentChange(Type.DELETE, id, null, version);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // Null for deletes
+    public Student getStudent() {
+        return student;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.UPSERT ? "U " + student + " @" + version : "D " + id + " @" + version;
+    }
+}
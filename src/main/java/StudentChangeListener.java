@@ -0,0 +1,7 @@
+// Callback for components that mirror the student table (search index, statistics), fired after a write is stored
+interface StudentChangeListener {
+    // Called for inserts and updates with the student as now stored; listeners keep any previous state they need
+    void studentSaved(Student student);
+
+    void studentDeleted(int id);
+}
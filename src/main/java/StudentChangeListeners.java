@@ -0,0 +1,39 @@
+// Listener list shared by the repository backends; listeners are called on the writing thread
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class StudentChangeListeners {
+    private final List<StudentChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(StudentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void remove(StudentChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    void fireSaved(Student student) {
+        for (StudentChangeListener listener : listeners) {
+            try {
+                listener.studentSaved(student);
+            } catch (RuntimeException e) {
+                System.err.println("Error notifying change listener: " + e.getMessage());
+            }
+        }
+    }
+
+    void fireDeleted(int id) {
+        for (StudentChangeListener listener : listeners) {
+            try {
+                listener.studentDeleted(id);
+            } catch (RuntimeException e) {
+                System.err.println("Error notifying change listener: " + e.getMessage());
+            }
+        }
+    }
+}
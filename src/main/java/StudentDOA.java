@@ -5,83 +5,783 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-class StudentDAO {
-    private Connection getConnection() {
-        return DatabaseConnection.getInstance().getConnection();
-    }
-
-    public void addStudent(Student student) {
-        String sql = "INSERT INTO students (id, name, email, grade) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-            statement.setInt(1, student.getId());
-            statement.setString(2, student.getName());
-            statement.setString(3, student.getEmail());
-            statement.setInt(4, student.getGrade());
-            statement.executeUpdate();
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+class StudentDAO implements StudentRepository {
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final int fetchSize;
+    // Null means the shared DatabaseConnection instance, looked up on use so constructing a DAO opens nothing
+    private final DatabaseConnection database;
+    private final StudentChangeListeners listeners = new StudentChangeListeners();
+
+    public StudentDAO() {
+        this(Integer.getInteger("sms.dao.fetchSize", DEFAULT_FETCH_SIZE));
+    }
+
+    public StudentDAO(int fetchSize) {
+        this(null, fetchSize);
+    }
+
+    // A DAO over a specific database, such as one shard of a ShardedStudentRepository
+    public StudentDAO(DatabaseConnection database, int fetchSize) {
+        this.database = database;
+        this.fetchSize = fetchSize;
+    }
+
+    DatabaseConnection getDatabase() {
+        return database != null ? database : DatabaseConnection.getInstance();
+    }
+
+    // Borrows a pooled connection for a single operation; closing it returns it to the pool
+    private Connection getConnection() throws SQLException {
+        return getDatabase().getConnection();
+    }
+
+    // Held around every statement or transaction that draws from student_change_seq
+    private Lock changeLock() {
+        return getDatabase().getChangeLock().readLock();
+    }
+
+    // Commits and then notifies listeners while holding the dispatch stripes of the written IDs, so events for one
+    // student reach listeners in commit order. Writes therefore run in explicit transactions, never auto-commit.
+    private void commitAndDispatch(Connection connection, long stripes, Runnable dispatch) throws SQLException {
+        if (listeners.isEmpty()) {
+            connection.commit();
+            return;
+        }
+        StudentDispatchOrder order = getDatabase().getDispatchOrder();
+        order.lock(stripes);
+        try {
+            connection.commit();
+            dispatch.run();
+        } finally {
+            order.unlock(stripes);
+        }
+    }
+
+    // H2 (and the SQL standard) report a primary key or unique constraint violation with this SQLSTATE;
+    // a failed batch carries the statement's own error as its next exception
+    private static boolean isDuplicateKey(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if ("23505".equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean addStudent(Student student) {
+        long start = System.nanoTime();
+        String sql = "INSERT INTO students (id, name, email, grade, version) " +
+                "VALUES (?, ?, ?, ?, NEXT VALUE FOR student_change_seq)";
+        Lock changeLock = changeLock();
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            changeLock.lock();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setInt(1, student.getId());
+                statement.setString(2, student.getName());
+                statement.setString(3, student.getEmail());
+                statement.setInt(4, student.getGrade());
+                statement.executeUpdate();
+                commitAndDispatch(connection, StudentDispatchOrder.stripeOf(student.getId()),
+                        () -> listeners.fireSaved(student));
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                changeLock.unlock();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) {
+                return false;
+            }
+            OperationMetrics.ADD_STUDENT.recordError();
+            throw new IllegalStateException("Error adding student: " + e.getMessage(), e);
+        } finally {
+            OperationMetrics.ADD_STUDENT.recordLatency(start);
+        }
+    }
+
+    // Inserts (or upserts) students in chunks of batchSize, one transaction per chunk.
+    // Existing IDs are looked up once per chunk; in insert mode they are skipped, in upsert mode they are overwritten.
+    @Override
+    public BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        List<Student> chunk = new ArrayList<>(batchSize);
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                while (students.hasNext()) {
+                    chunk.add(students.next());
+                    if (chunk.size() == batchSize || !students.hasNext()) {
+                        result.addBatch(writeBatch(connection, chunk, upsert));
+                        chunk.clear();
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException e) {
-            System.err.println("Error adding student: " + e.getMessage());
+            OperationMetrics.ADD_STUDENTS.recordError();
+            System.err.println("Error adding students: " + e.getMessage());
+        } finally {
+            OperationMetrics.ADD_STUDENTS.recordLatency(start);
         }
+        return result;
     }
 
+    // A batch that collides with IDs another connection inserted after the lookup is rolled back and retried
+    // with a fresh lookup, so only the colliding rows are skipped (or updated) instead of failing the whole batch
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private BulkImportResult.Batch writeBatch(Connection connection, List<Student> chunk, boolean upsert) throws SQLException {
+        String sql = upsert
+                ? "MERGE INTO students (id, name, email, grade, version) KEY (id) " +
+                        "VALUES (?, ?, ?, ?, NEXT VALUE FOR student_change_seq)"
+                : "INSERT INTO students (id, name, email, grade, version) " +
+                        "VALUES (?, ?, ?, ?, NEXT VALUE FOR student_change_seq)";
+        for (int attempt = 1; ; attempt++) {
+            Set<Integer> existing = findExistingIds(connection, chunk);
+            Set<Integer> seen = new HashSet<>();
+            List<Student> written = listeners.isEmpty() ? null : new ArrayList<>(chunk.size());
+            long stripes = 0;
+            int inserted = 0;
+            int updated = 0;
+            int skipped = 0;
+            Lock changeLock = changeLock();
+            changeLock.lock();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Student student : chunk) {
+                    boolean exists = existing.contains(student.getId()) || !seen.add(student.getId());
+                    if (exists && !upsert) {
+                        skipped++;
+                        continue;
+                    }
+                    statement.setInt(1, student.getId());
+                    statement.setString(2, student.getName());
+                    statement.setString(3, student.getEmail());
+                    statement.setInt(4, student.getGrade());
+                    statement.addBatch();
+                    if (written != null) {
+                        written.add(student);
+                        stripes |= StudentDispatchOrder.stripeOf(student.getId());
+                    }
+                    if (exists) {
+                        updated++;
+                    } else {
+                        inserted++;
+                    }
+                }
+                if (inserted + updated > 0) {
+                    statement.executeBatch();
+                }
+                commitAndDispatch(connection, stripes, () -> {
+                    if (written != null) {
+                        written.forEach(listeners::fireSaved);
+                    }
+                });
+                return new BulkImportResult.Batch(inserted, updated, skipped, 0);
+            } catch (SQLException e) {
+                connection.rollback();
+                if (isDuplicateKey(e) && attempt < MAX_BATCH_ATTEMPTS) {
+                    continue;
+                }
+                OperationMetrics.ADD_STUDENTS.recordError();
+                System.err.println("Error writing student batch: " + e.getMessage());
+                return new BulkImportResult.Batch(0, 0, skipped, inserted + updated);
+            } finally {
+                changeLock.unlock();
+            }
+        }
+    }
+
+    private Set<Integer> findExistingIds(Connection connection, List<Student> chunk) throws SQLException {
+        Set<Integer> existing = new HashSet<>();
+        Object[] ids = new Object[chunk.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = chunk.get(i).getId();
+        }
+        String sql = "SELECT id FROM students WHERE id = ANY(?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setArray(1, connection.createArrayOf("INTEGER", ids));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    @Override
     public Student getStudentById(int id) {
+        long start = System.nanoTime();
         String sql = "SELECT * FROM students WHERE id = ?";
-        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Student(
-                        resultSet.getInt("id"),
-                        resultSet.getString("name"),
-                        resultSet.getString("email"),
-                        resultSet.getInt("grade")
-                );
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapStudent(resultSet);
+                }
             }
         } catch (SQLException e) {
+            OperationMetrics.GET_STUDENT_BY_ID.recordError();
             System.err.println("Error fetching student: " + e.getMessage());
+        } finally {
+            OperationMetrics.GET_STUDENT_BY_ID.recordLatency(start);
         }
         return null;
     }
 
+    @Override
     public List<Student> getAllStudents() {
+        long start = System.nanoTime();
         List<Student> students = new ArrayList<>();
         String sql = "SELECT * FROM students";
-        try (Statement statement = getConnection().createStatement();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(sql)) {
             while (resultSet.next()) {
-                students.add(new Student(
-                        resultSet.getInt("id"),
-                        resultSet.getString("name"),
-                        resultSet.getString("email"),
-                        resultSet.getInt("grade")
-                ));
+                students.add(mapStudent(resultSet));
             }
         } catch (SQLException e) {
+            OperationMetrics.GET_ALL_STUDENTS.recordError();
             System.err.println("Error fetching all students: " + e.getMessage());
+        } finally {
+            OperationMetrics.GET_ALL_STUDENTS.recordLatency(start);
         }
         return students;
     }
 
-    public void updateStudent(Student student) {
-        String sql = "UPDATE students SET name = ?, email = ?, grade = ? WHERE id = ?";
-        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-            statement.setString(1, student.getName());
-            statement.setString(2, student.getEmail());
-            statement.setInt(3, student.getGrade());
-            statement.setInt(4, student.getId());
-            statement.executeUpdate();
+    // Streams every student through a forward-only cursor. The stream holds a pooled connection
+    // until it is closed, so callers must use try-with-resources.
+    @Override
+    public Stream<Student> streamAllStudents() {
+        return streamQuery(OperationMetrics.STREAM_ALL_STUDENTS, "SELECT * FROM students");
+    }
+
+    // Served by the (grade, name, id) index: a range scan that already comes back in name order
+    @Override
+    public Stream<Student> streamStudentsByGrade(int grade) {
+        return streamQuery(OperationMetrics.STREAM_BY_GRADE,
+                "SELECT * FROM students WHERE grade = ? ORDER BY name, id", grade);
+    }
+
+    // Served by the (name, id) index, so no sort step is needed
+    @Override
+    public Stream<Student> streamStudentsSortedByName() {
+        return streamQuery(OperationMetrics.STREAM_SORTED_BY_NAME, "SELECT * FROM students ORDER BY name, id");
+    }
+
+    // Answered from the (grade, name, id) index; returns null if the query fails
+    @Override
+    public Map<Integer, Long> countStudentsByGrade() {
+        long start = System.nanoTime();
+        String sql = "SELECT grade, COUNT(*) FROM students GROUP BY grade ORDER BY grade";
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            Map<Integer, Long> counts = new TreeMap<>();
+            while (resultSet.next()) {
+                counts.put(resultSet.getInt(1), resultSet.getLong(2));
+            }
+            return counts;
         } catch (SQLException e) {
-            System.err.println("Error updating student: " + e.getMessage());
+            OperationMetrics.COUNT_BY_GRADE.recordError();
+            System.err.println("Error counting students by grade: " + e.getMessage());
+            return null;
+        } finally {
+            OperationMetrics.COUNT_BY_GRADE.recordLatency(start);
         }
     }
 
-    public void deleteStudent(int id) {
-        String sql = "DELETE FROM students WHERE id = ?";
-        try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-            statement.setInt(1, id);
-            statement.executeUpdate();
+    // Keyset pagination ordered by (name, id). Pass the last student of the previous page as 'after'
+    // (or null for the first page) and an optional grade filter; each page is an index seek, not an OFFSET scan.
+    @Override
+    public List<Student> getStudentsPage(Integer grade, Student after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (grade != null) {
+            sql.append(" AND grade = ?");
+            parameters.add(grade);
+        }
+        if (after != null) {
+            sql.append(" AND (name > ? OR (name = ? AND id > ?))");
+            parameters.add(after.getName());
+            parameters.add(after.getName());
+            parameters.add(after.getId());
+        }
+        sql.append(" ORDER BY name, id LIMIT ?");
+        parameters.add(limit);
+        try (Stream<Student> students = streamQuery(OperationMetrics.GET_STUDENTS_PAGE, sql.toString(),
+                parameters.toArray())) {
+            return students.collect(Collectors.toList());
+        }
+    }
+
+    // The metric's latency covers the whole scan, from opening the cursor to closing the stream. A query or read
+    // error fails the stream (IllegalStateException), so callers never take a truncated result for a complete one.
+    private Stream<Student> streamQuery(OperationMetrics metrics, String sql, Object... parameters) {
+        long start = System.nanoTime();
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            resultSet = statement.executeQuery();
         } catch (SQLException e) {
-            System.err.println("Error deleting student: " + e.getMessage());
+            metrics.recordError();
+            metrics.recordLatency(start);
+            closeCursor(resultSet, statement, connection);
+            throw new IllegalStateException("Error streaming students: " + e.getMessage(), e);
         }
+
+        ResultSet cursor = resultSet;
+        PreparedStatement cursorStatement = statement;
+        Connection cursorConnection = connection;
+        Spliterator<Student> spliterator = new Spliterators.AbstractSpliterator<Student>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapStudent(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    metrics.recordError();
+                    throw new IllegalStateException("Error streaming students: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    closeCursor(cursor, cursorStatement, cursorConnection);
+                    metrics.recordLatency(start);
+                });
+    }
+
+    // Closes the cursor, statement and connection in that order; each is closed even if an earlier one fails
+    private static void closeCursor(ResultSet resultSet, Statement statement, Connection connection) {
+        AutoCloseable[] resources = {resultSet, statement, connection};
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Error closing student cursor: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Student mapStudent(ResultSet resultSet) throws SQLException {
+        return new Student(
+                resultSet.getInt("id"),
+                resultSet.getString("name"),
+                resultSet.getString("email"),
+                resultSet.getInt("grade")
+        );
+    }
+
+    @Override
+    public boolean updateStudent(Student student) {
+        long start = System.nanoTime();
+        String sql = "UPDATE students SET name = ?, email = ?, grade = ?, " +
+                "version = NEXT VALUE FOR student_change_seq WHERE id = ?";
+        Lock changeLock = changeLock();
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            changeLock.lock();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, student.getName());
+                statement.setString(2, student.getEmail());
+                statement.setInt(3, student.getGrade());
+                statement.setInt(4, student.getId());
+                boolean found = statement.executeUpdate() > 0;
+                commitAndDispatch(connection, StudentDispatchOrder.stripeOf(student.getId()), () -> {
+                    if (found) {
+                        listeners.fireSaved(student);
+                    }
+                });
+                return found;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                changeLock.unlock();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            OperationMetrics.UPDATE_STUDENT.recordError();
+            throw new IllegalStateException("Error updating student: " + e.getMessage(), e);
+        } finally {
+            OperationMetrics.UPDATE_STUDENT.recordLatency(start);
+        }
+    }
+
+    @Override
+    public boolean deleteStudent(int id) {
+        long start = System.nanoTime();
+        Lock changeLock = changeLock();
+        try (Connection connection = getConnection()) {
+            // The row and its tombstone go in one transaction, so a delta export sees both or neither
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            changeLock.lock();
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM students WHERE id = ?");
+                 PreparedStatement tombstone = connection.prepareStatement(
+                         "MERGE INTO student_tombstones (id, version) KEY (id) " +
+                                 "VALUES (?, NEXT VALUE FOR student_change_seq)")) {
+                delete.setInt(1, id);
+                boolean deleted = delete.executeUpdate() > 0;
+                if (deleted) {
+                    tombstone.setInt(1, id);
+                    tombstone.executeUpdate();
+                }
+                commitAndDispatch(connection, StudentDispatchOrder.stripeOf(id), () -> {
+                    if (deleted) {
+                        listeners.fireDeleted(id);
+                    }
+                });
+                return deleted;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                changeLock.unlock();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            OperationMetrics.DELETE_STUDENT.recordError();
+            throw new IllegalStateException("Error deleting student: " + e.getMessage(), e);
+        } finally {
+            OperationMetrics.DELETE_STUDENT.recordLatency(start);
+        }
+    }
+
+    // Bulk updates and deletes run in keyset chunks of this many IDs, one transaction each, so a large class
+    // neither holds one huge transaction nor materializes every affected row at once
+    static final int BULK_CHUNK_SIZE = 10_000;
+
+    @Override
+    public int updateStudents(StudentFilter filter, GradeChange change) {
+        long start = System.nanoTime();
+        List<Object> whereParams = new ArrayList<>();
+        String where = filter.toSql(whereParams);
+        // The data change delta table hands back the updated rows, so listeners get them without a second query
+        String sql = "SELECT id, name, email, grade FROM FINAL TABLE (UPDATE students SET grade = " + change.toSql() +
+                ", version = NEXT VALUE FOR student_change_seq WHERE " + where + " AND id > ? AND id <= ?)";
+        int affected = 0;
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long after = Integer.MIN_VALUE - 1L;
+                Integer last;
+                while ((last = nextChunkEnd(connection, where, whereParams, after)) != null) {
+                    List<Object> params = new ArrayList<>(whereParams.size() + 3);
+                    params.add(change.getValue());
+                    params.addAll(whereParams);
+                    params.add(after);
+                    params.add(last);
+                    List<Student> updated = new ArrayList<>();
+                    Lock changeLock = changeLock();
+                    changeLock.lock();
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        bind(connection, statement, params);
+                        long stripes = 0;
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                Student student = mapStudent(resultSet);
+                                updated.add(student);
+                                stripes |= StudentDispatchOrder.stripeOf(student.getId());
+                            }
+                        }
+                        commitAndDispatch(connection, stripes, () -> updated.forEach(listeners::fireSaved));
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        changeLock.unlock();
+                    }
+                    affected += updated.size();
+                    after = last;
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            OperationMetrics.UPDATE_STUDENTS.recordError();
+            System.err.println("Error updating students (" + affected + " updated before the error): " + e.getMessage());
+        } finally {
+            OperationMetrics.UPDATE_STUDENTS.recordLatency(start);
+        }
+        return affected;
+    }
+
+    @Override
+    public int deleteStudents(StudentFilter filter) {
+        long start = System.nanoTime();
+        List<Object> whereParams = new ArrayList<>();
+        String where = filter.toSql(whereParams);
+        String sql = "SELECT id FROM OLD TABLE (DELETE FROM students WHERE " + where + " AND id > ? AND id <= ?)";
+        String tombstoneSql = "MERGE INTO student_tombstones (id, version) KEY (id) " +
+                "VALUES (?, NEXT VALUE FOR student_change_seq)";
+        int affected = 0;
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long after = Integer.MIN_VALUE - 1L;
+                Integer last;
+                while ((last = nextChunkEnd(connection, where, whereParams, after)) != null) {
+                    List<Object> params = new ArrayList<>(whereParams.size() + 2);
+                    params.addAll(whereParams);
+                    params.add(after);
+                    params.add(last);
+                    List<Integer> deleted = new ArrayList<>();
+                    Lock changeLock = changeLock();
+                    changeLock.lock();
+                    try (PreparedStatement statement = connection.prepareStatement(sql);
+                         PreparedStatement tombstones = connection.prepareStatement(tombstoneSql)) {
+                        bind(connection, statement, params);
+                        long stripes = 0;
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                int id = resultSet.getInt(1);
+                                deleted.add(id);
+                                stripes |= StudentDispatchOrder.stripeOf(id);
+                                tombstones.setInt(1, id);
+                                tombstones.addBatch();
+                            }
+                        }
+                        if (!deleted.isEmpty()) {
+                            tombstones.executeBatch();
+                        }
+                        commitAndDispatch(connection, stripes, () -> deleted.forEach(listeners::fireDeleted));
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        changeLock.unlock();
+                    }
+                    affected += deleted.size();
+                    after = last;
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            OperationMetrics.DELETE_STUDENTS.recordError();
+            System.err.println("Error deleting students (" + affected + " deleted before the error): " + e.getMessage());
+        } finally {
+            OperationMetrics.DELETE_STUDENTS.recordLatency(start);
+        }
+        return affected;
+    }
+
+    // Highest ID of the next chunk of matching students above 'after', or null when there are none left.
+    // Walking by ID keeps each student in exactly one chunk, even when the update moves it in or out of the filter.
+    private static Integer nextChunkEnd(Connection connection, String where, List<Object> whereParams, long after)
+            throws SQLException {
+        String sql = "SELECT MAX(id) FROM (SELECT id FROM students WHERE " + where + " AND id > ? " +
+                "ORDER BY id LIMIT " + BULK_CHUNK_SIZE + ")";
+        List<Object> params = new ArrayList<>(whereParams);
+        params.add(after);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bind(connection, statement, params);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                int last = resultSet.getInt(1);
+                return resultSet.wasNull() ? null : last;
+            }
+        }
+    }
+
+    private static void bind(Connection connection, PreparedStatement statement, List<Object> params)
+            throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            Object value = params.get(i);
+            if (value instanceof Integer[]) {
+                statement.setArray(i + 1, connection.createArrayOf("INTEGER", (Integer[]) value));
+            } else {
+                statement.setObject(i + 1, value);
+            }
+        }
+    }
+
+    // Draws the exclusive upper bound for a delta export. Taking the change lock exclusively waits out every
+    // write transaction in flight, so all versions below the returned value are committed. The connection is
+    // borrowed first: writers hold a connection while they wait for the change lock, so borrowing under the
+    // lock could wait on a pool that only they can refill.
+    long reserveChangeWatermark() throws SQLException {
+        long start = System.nanoTime();
+        Lock exclusive = getDatabase().getChangeLock().writeLock();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            exclusive.lock();
+            try (ResultSet resultSet = statement.executeQuery("SELECT NEXT VALUE FOR student_change_seq")) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            } finally {
+                exclusive.unlock();
+            }
+        } catch (SQLException e) {
+            OperationMetrics.RESERVE_CHANGE_WATERMARK.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.RESERVE_CHANGE_WATERMARK.recordLatency(start);
+        }
+    }
+
+    // Upserts and tombstones with fromVersion <= version < toVersion, in version order. Both sides are range
+    // scans on a version index, so the cost follows the number of changes rather than the table size.
+    // A read error fails the stream (IllegalStateException) instead of ending it early, so a partial change
+    // feed is never mistaken for a complete one.
+    Stream<StudentChange> streamChanges(long fromVersion, long toVersion) throws SQLException {
+        long start = System.nanoTime();
+        String sql = "SELECT version, id, name, email, grade, FALSE AS deleted FROM students " +
+                "WHERE version >= ? AND version < ? " +
+                "UNION ALL " +
+                "SELECT version, id, NULL, NULL, NULL, TRUE FROM student_tombstones " +
+                "WHERE version >= ? AND version < ? " +
+                "ORDER BY version";
+        Connection connection = getConnection();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, fromVersion);
+            statement.setLong(2, toVersion);
+            statement.setLong(3, fromVersion);
+            statement.setLong(4, toVersion);
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            OperationMetrics.STREAM_CHANGES.recordError();
+            OperationMetrics.STREAM_CHANGES.recordLatency(start);
+            closeCursor(resultSet, statement, connection);
+            throw e;
+        }
+
+        ResultSet cursor = resultSet;
+        PreparedStatement cursorStatement = statement;
+        Spliterator<StudentChange> spliterator = new Spliterators.AbstractSpliterator<StudentChange>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super StudentChange> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    long version = cursor.getLong(1);
+                    if (cursor.getBoolean(6)) {
+                        action.accept(StudentChange.delete(cursor.getInt(2), version));
+                    } else {
+                        action.accept(StudentChange.upsert(new Student(cursor.getInt(2), cursor.getString(3),
+                                cursor.getString(4), cursor.getInt(5)), version));
+                    }
+                    return true;
+                } catch (SQLException e) {
+                    OperationMetrics.STREAM_CHANGES.recordError();
+                    throw new IllegalStateException("Error reading student changes: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    closeCursor(cursor, cursorStatement, connection);
+                    OperationMetrics.STREAM_CHANGES.recordLatency(start);
+                });
+    }
+
+    // The version a consumer's next delta export starts from; 0 (everything) for a consumer never seen before
+    long getExportCheckpoint(String consumer) throws SQLException {
+        long start = System.nanoTime();
+        String sql = "SELECT version FROM export_checkpoints WHERE consumer = ?";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, consumer);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            OperationMetrics.GET_EXPORT_CHECKPOINT.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.GET_EXPORT_CHECKPOINT.recordLatency(start);
+        }
+    }
+
+    // Records the checkpoint and drops tombstones every known consumer has already read past
+    void saveExportCheckpoint(String consumer, long version) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement save = connection.prepareStatement(
+                    "MERGE INTO export_checkpoints (consumer, version, exported_at) KEY (consumer) " +
+                            "VALUES (?, ?, CURRENT_TIMESTAMP)");
+                 Statement prune = connection.createStatement()) {
+                save.setString(1, consumer);
+                save.setLong(2, version);
+                save.executeUpdate();
+                prune.executeUpdate("DELETE FROM student_tombstones " +
+                        "WHERE version < (SELECT MIN(version) FROM export_checkpoints)");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            OperationMetrics.SAVE_EXPORT_CHECKPOINT.recordError();
+            throw e;
+        } finally {
+            OperationMetrics.SAVE_EXPORT_CHECKPOINT.recordLatency(start);
+        }
+    }
+
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        listeners.remove(listener);
     }
-}
\ No newline at end of file
+}
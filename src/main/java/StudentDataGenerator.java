@@ -0,0 +1,80 @@
+// Deterministic synthetic students for load and soak tests: varied names and email domains, and grades drawn
+// from a configurable distribution
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+class StudentDataGenerator {
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace", "Linus", "Barbara", "Edsger", "Donald",
+            "Margaret", "Ken", "Dennis", "Frances", "John", "Radia", "Leslie", "Shafi", "Tim", "Katherine", "Niklaus",
+            "Sophie", "Guido", "Hedy", "James", "Anita", "Bjarne", "Jean", "Robin", "Yukihiro", "Fran", "Adele", "Ivan"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Torvalds", "Liskov", "Dijkstra",
+            "Knuth", "Hamilton", "Thompson", "Ritchie", "Allen", "McCarthy", "Perlman", "Lamport", "Goldwasser",
+            "Berners-Lee", "Johnson", "Wirth", "Wilson", "van Rossum", "Lamarr", "Gosling", "Borg", "Stroustrup",
+            "Sammet", "Milner", "Matsumoto", "Bilas", "Goldberg", "Sutherland"};
+    private static final String[] DOMAINS = {"school.edu", "students.school.edu", "mail.example.org", "example.com"};
+    // Enrolment thins out in the upper grades
+    static final String DEFAULT_GRADE_WEIGHTS = "10,10,10,10,9,9,9,8,8,7,6,6";
+
+    // Cumulative weights for grades 1-12
+    private final long[] cumulativeWeights;
+
+    StudentDataGenerator(String gradeWeights) {
+        String[] parts = gradeWeights.split(",");
+        if (parts.length != StudentStatistics.MAX_GRADE) {
+            throw new IllegalArgumentException("Expected " + StudentStatistics.MAX_GRADE +
+                    " comma-separated grade weights, got: " + gradeWeights);
+        }
+        cumulativeWeights = new long[parts.length];
+        long total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            long weight = Long.parseLong(parts[i].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Grade weights cannot be negative: " + gradeWeights);
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one grade weight must be positive: " + gradeWeights);
+        }
+    }
+
+    public Student student(int id, Random random) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String email = (first + "." + last).toLowerCase().replace(' ', '-') + id + "@" +
+                DOMAINS[random.nextInt(DOMAINS.length)];
+        return new Student(id, first + " " + last, email, grade(random));
+    }
+
+    public int grade(Random random) {
+        long pick = (long) (random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= pick) {
+            index++;
+        }
+        return index + StudentStatistics.MIN_GRADE;
+    }
+
+    // Students firstId, firstId + 1, ... generated lazily, so millions of them never sit in memory at once
+    public Iterator<Student> students(int firstId, int count, long seed) {
+        Random random = new Random(seed);
+        return new Iterator<Student>() {
+            private int generated;
+
+            @Override
+            public boolean hasNext() {
+                return generated < count;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return student(firstId + generated++, random);
+            }
+        };
+    }
+}
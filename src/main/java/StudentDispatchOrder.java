@@ -0,0 +1,35 @@
+// Keeps change events for the same student in commit order. A writer takes the stripes of the IDs it wrote once
+// its statements have run, so same-ID writers are already serialized by the database's row locks, and holds them
+// across commit and listener dispatch. Holders never wait on the database, and stripes are always taken in
+// ascending order, so this cannot deadlock with row locks or with another writer.
+import java.util.concurrent.locks.ReentrantLock;
+
+class StudentDispatchOrder {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    StudentDispatchOrder() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // One bit per stripe; OR the masks of every ID a transaction wrote
+    static long stripeOf(int id) {
+        int hash = id * 0x9E3779B9;
+        return 1L << (hash >>> 26);
+    }
+
+    void lock(long mask) {
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            stripes[Long.numberOfTrailingZeros(rest)].lock();
+        }
+    }
+
+    void unlock(long mask) {
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            stripes[Long.numberOfTrailingZeros(rest)].unlock();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// Selects the students a bulk update or delete applies to. Each factory sets one condition;
+// and() combines filters so that all conditions must hold.
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+class StudentFilter {
+    private final Integer minGrade;
+    private final Integer maxGrade;
+    private final int[] ids;
+    private final Integer minId;
+    private final Integer maxId;
+    private final String emailDomain;
+    private final String emailSuffix;
+
+    private StudentFilter(Integer minGrade, Integer maxGrade, int[] ids, Integer minId, Integer maxId,
+                          String emailDomain) {
+        this.minGrade = minGrade;
+        this.maxGrade = maxGrade;
+        this.ids = ids;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.emailDomain = emailDomain;
+        this.emailSuffix = emailDomain == null ? null : "@" + emailDomain;
+    }
+
+    static StudentFilter gradeRange(int minGrade, int maxGrade) {
+        if (minGrade > maxGrade) {
+            throw new IllegalArgumentException("Empty grade range: " + minGrade + "-" + maxGrade);
+        }
+        return new StudentFilter(minGrade, maxGrade, null, null, null, null);
+    }
+
+    static StudentFilter idList(int... ids) {
+        if (ids.length == 0) {
+            throw new IllegalArgumentException("ID list must not be empty");
+        }
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        return new StudentFilter(null, null, sorted, null, null, null);
+    }
+
+    static StudentFilter idRange(int minId, int maxId) {
+        if (minId > maxId) {
+            throw new IllegalArgumentException("Empty ID range: " + minId + "-" + maxId);
+        }
+        return new StudentFilter(null, null, null, minId, maxId, null);
+    }
+
+    // Matches emails ending in "@domain", ignoring case
+    static StudentFilter emailDomain(String domain) {
+        String normalized = domain.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith("@")) {
+            normalized = normalized.substring(1);
+        }
+        if (normalized.isEmpty() || normalized.indexOf('@') >= 0) {
+            throw new IllegalArgumentException("Invalid email domain: " + domain);
+        }
+        return new StudentFilter(null, null, null, null, null, normalized);
+    }
+
+    StudentFilter and(StudentFilter other) {
+        if ((ids != null && other.ids != null) || (emailDomain != null && other.emailDomain != null)) {
+            throw new IllegalArgumentException("Cannot combine two ID lists or two email domains");
+        }
+        return new StudentFilter(
+                max(minGrade, other.minGrade), min(maxGrade, other.maxGrade),
+                ids != null ? ids : other.ids,
+                max(minId, other.minId), min(maxId, other.maxId),
+                emailDomain != null ? emailDomain : other.emailDomain);
+    }
+
+    public boolean matches(Student student) {
+        return matches(student.getId(), student.getGrade(), student.getEmail());
+    }
+
+    // Column-wise form for stores that keep fields apart, so a row is only turned into a Student if it matches
+    public boolean matches(int id, int grade, String email) {
+        if ((minGrade != null && grade < minGrade) || (maxGrade != null && grade > maxGrade)) {
+            return false;
+        }
+        if ((minId != null && id < minId) || (maxId != null && id > maxId)) {
+            return false;
+        }
+        if (ids != null && Arrays.binarySearch(ids, id) < 0) {
+            return false;
+        }
+        return emailSuffix == null || (email != null && email.regionMatches(true,
+                email.length() - emailSuffix.length(), emailSuffix, 0, emailSuffix.length()));
+    }
+
+    // SQL condition over the students table; parameter values are appended to params in order
+    String toSql(List<Object> params) {
+        StringBuilder sql = new StringBuilder("1 = 1");
+        if (minGrade != null) {
+            sql.append(" AND grade >= ?");
+            params.add(minGrade);
+        }
+        if (maxGrade != null) {
+            sql.append(" AND grade <= ?");
+            params.add(maxGrade);
+        }
+        if (minId != null) {
+            sql.append(" AND id >= ?");
+            params.add(minId);
+        }
+        if (maxId != null) {
+            sql.append(" AND id <= ?");
+            params.add(maxId);
+        }
+        if (ids != null) {
+            sql.append(" AND id = ANY(?)");
+            params.add(Arrays.stream(ids).boxed().toArray(Integer[]::new));
+        }
+        if (emailDomain != null) {
+            sql.append(" AND LOWER(email) LIKE ? ESCAPE '\\'");
+            params.add("%@" + emailDomain.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_"));
+        }
+        return sql.toString();
+    }
+
+    private static Integer max(Integer a, Integer b) {
+        return a == null ? b : b == null ? a : Integer.valueOf(Math.max(a, b));
+    }
+
+    private static Integer min(Integer a, Integer b) {
+        return a == null ? b : b == null ? a : Integer.valueOf(Math.min(a, b));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (minGrade != null || maxGrade != null) {
+            text.append("grade ").append(minGrade == null ? "*" : minGrade).append('-')
+                    .append(maxGrade == null ? "*" : maxGrade).append(' ');
+        }
+        if (minId != null || maxId != null) {
+            text.append("id ").append(minId == null ? "*" : minId).append('-').append(maxId == null ? "*" : maxId)
+                    .append(' ');
+        }
+        if (ids != null) {
+            text.append(ids.length).append(" listed IDs ");
+        }
+        if (emailDomain != null) {
+            text.append("email @").append(emailDomain).append(' ');
+        }
+        return text.length() == 0 ? "all students" : text.toString().trim();
+    }
+}
@@ -0,0 +1,613 @@
+// Headless HTTP/JSON API over a StudentRepository, built on the JDK's com.sun.net.httpserver.
+//   GET    /students?grade=&afterName=&afterId=&limit=   keyset-paginated listing
+//   GET    /students/{id}                                 one student
+//   POST   /students            (form: id,name,email,grade)
+//   PUT    /students/{id}       (form: name,email,grade)
+//   DELETE /students/{id}
+//   GET    /grades/{grade}/students                       all students in a grade, by name
+//   POST   /import              (CSV body, plain or gzip) upsert=true to overwrite existing IDs
+//   GET    /export?gzip=true                              CSV download
+//   GET    /search?q=&limit=                              type-ahead name/email search (when the index is on)
+//   GET    /stats?verify=true                             counts per grade; verify also checks them against storage
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+class StudentHttpServer implements AutoCloseable {
+    static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final StudentRepository repository;
+    private final StudentSearchIndex searchIndex;
+    private final StudentStatistics statistics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    // Caps how many requests are inside the repository at once; the rest wait here instead of on the pool
+    private final Semaphore repositoryPermits;
+    private final int maxConcurrentCalls;
+    private final long acquireTimeoutMillis;
+
+    StudentHttpServer(StudentRepository repository, StudentSearchIndex searchIndex, StudentStatistics statistics,
+                      int port, int maxConcurrentCalls, long acquireTimeoutMillis) throws IOException {
+        this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.statistics = statistics;
+        this.repositoryPermits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual
+                : Executors.newFixedThreadPool(Integer.getInteger("sms.http.threads", 64));
+        this.server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("sms.http.backlog", 1024));
+        server.setExecutor(executor);
+        server.createContext("/students", this::handleStudents);
+        server.createContext("/grades/", this::handleGrades);
+        server.createContext("/import", this::handleImport);
+        server.createContext("/export", this::handleExport);
+        if (searchIndex != null) {
+            server.createContext("/search", this::handleSearch);
+        }
+        if (statistics != null) {
+            server.createContext("/stats", this::handleStats);
+        }
+    }
+
+    // The DB cap defaults to the connection pool size, so requests queue on a permit rather than a pool timeout.
+    // A write-behind repository is unwrapped first, since its reads and flushes use the backend's pool.
+    public static StudentHttpServer fromSystemProperties(StudentRepository repository, StudentSearchIndex searchIndex,
+                                                         StudentStatistics statistics, int port) throws IOException {
+        StudentRepository backend = repository instanceof WriteBehindStudentRepository
+                ? ((WriteBehindStudentRepository) repository).getDelegate() : repository;
+        int defaultPermits = backend instanceof StudentDAO
+                ? ((StudentDAO) backend).getDatabase().getConfig().getPoolMaxSize()
+                : backend instanceof ShardedStudentRepository
+                ? ((ShardedStudentRepository) backend).getConnectionCapacity()
+                : Runtime.getRuntime().availableProcessors() * 2;
+        return new StudentHttpServer(repository, searchIndex, statistics, port,
+                Integer.getInteger("sms.http.maxConcurrentCalls", defaultPermits),
+                Long.getLong("sms.http.acquireTimeoutMillis", 10_000L));
+    }
+
+    // The build targets Java 11, so virtual threads (Java 21+) are picked up reflectively when the JVM has them
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/students") || path.equals("/students/")) {
+                if (method.equals("GET")) {
+                    listStudents(exchange);
+                } else if (method.equals("POST")) {
+                    createStudent(exchange);
+                } else {
+                    sendError(exchange, 405, "Method not allowed");
+                }
+                return;
+            }
+            // The context matches any path starting with /students, including /studentsX
+            if (!path.startsWith("/students/")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            int id = parseInt(path.substring("/students/".length()), "id");
+            switch (method) {
+                case "GET":
+                    getStudent(exchange, id);
+                    break;
+                case "PUT":
+                    updateStudent(exchange, id);
+                    break;
+                case "DELETE":
+                    deleteStudent(exchange, id);
+                    break;
+                default:
+                    sendError(exchange, 405, "Method not allowed");
+            }
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (BusyException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void listStudents(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        Integer grade = query.containsKey("grade") ? parseGrade(query.get("grade")) : null;
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_PAGE_SIZE;
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Student after = null;
+        if (query.containsKey("afterName") || query.containsKey("afterId")) {
+            if (!query.containsKey("afterName") || !query.containsKey("afterId")) {
+                throw new BadRequestException("afterName and afterId must be given together");
+            }
+            after = new Student(parseInt(query.get("afterId"), "afterId"), query.get("afterName"), null, 0);
+        }
+
+        Student cursor = after;
+        List<Student> page = callRepository(() -> repository.getStudentsPage(grade, cursor, limit));
+        StringBuilder json = new StringBuilder(64 + page.size() * 96).append("{\"students\":[");
+        appendStudents(json, page.iterator());
+        json.append(']');
+        if (page.size() == limit) {
+            Student last = page.get(page.size() - 1);
+            json.append(",\"next\":{\"afterName\":");
+            appendString(json, last.getName());
+            json.append(",\"afterId\":").append(last.getId()).append('}');
+        }
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private void getStudent(HttpExchange exchange, int id) throws IOException {
+        Student student = callRepository(() -> repository.getStudentById(id));
+        if (student == null) {
+            sendError(exchange, 404, "Student not found: " + id);
+            return;
+        }
+        sendJson(exchange, 200, appendStudent(new StringBuilder(96), student).toString());
+    }
+
+    private void createStudent(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseForm(readBody(exchange));
+        Student student = studentFromForm(parseInt(required(form, "id"), "id"), form);
+        // The lookup catches existing IDs on write-behind backends, where an add is an upsert; addStudent itself
+        // catches a concurrent insert of the same ID. A storage failure throws and becomes a 500.
+        boolean created = callRepository(() ->
+                repository.getStudentById(student.getId()) == null && repository.addStudent(student));
+        if (!created) {
+            sendError(exchange, 409, "A student with ID " + student.getId() + " already exists");
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/students/" + student.getId());
+        sendJson(exchange, 201, appendStudent(new StringBuilder(96), student).toString());
+    }
+
+    private void updateStudent(HttpExchange exchange, int id) throws IOException {
+        Map<String, String> form = parseForm(readBody(exchange));
+        Student student = studentFromForm(id, form);
+        boolean updated = callRepository(() ->
+                repository.getStudentById(id) != null && repository.updateStudent(student));
+        if (!updated) {
+            sendError(exchange, 404, "Student not found: " + id);
+            return;
+        }
+        sendJson(exchange, 200, appendStudent(new StringBuilder(96), student).toString());
+    }
+
+    private void deleteStudent(HttpExchange exchange, int id) throws IOException {
+        boolean deleted = callRepository(() -> repository.deleteStudent(id));
+        if (!deleted) {
+            sendError(exchange, 404, "Student not found: " + id);
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void handleGrades(HttpExchange exchange) throws IOException {
+        try {
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            // "", "grades", "{grade}", "students"
+            if (parts.length != 4 || !parts[3].equals("students")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            int grade = parseGrade(parts[2]);
+            String json = callRepository(() -> {
+                try (Stream<Student> students = repository.streamStudentsByGrade(grade)) {
+                    StringBuilder builder = new StringBuilder(4096).append("{\"grade\":").append(grade)
+                            .append(",\"students\":[");
+                    appendStudents(builder, students.iterator());
+                    return builder.append("]}").toString();
+                }
+            });
+            sendJson(exchange, 200, json);
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (BusyException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Served from memory, so it does not take a repository permit
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+            String text = required(query, "q");
+            int limit = query.containsKey("limit")
+                    ? parseInt(query.get("limit"), "limit") : StudentSearchIndex.DEFAULT_LIMIT;
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            StringBuilder json = new StringBuilder(1024).append("{\"students\":[");
+            appendStudents(json, searchIndex.search(text, limit).iterator());
+            sendJson(exchange, 200, json.append("]}").toString());
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Counts come from the maintained snapshot; only verify=true touches the repository
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            boolean verify = Boolean.parseBoolean(parseForm(exchange.getRequestURI().getRawQuery()).get("verify"));
+            StudentStatistics.ConsistencyReport report = verify
+                    ? callRepository(() -> statistics.verify(repository)) : null;
+            StudentStatistics.Snapshot snapshot = report != null ? report.getSnapshot() : statistics.getSnapshot();
+            StringBuilder json = new StringBuilder(512)
+                    .append("{\"total\":").append(snapshot.getTotal())
+                    .append(",\"meanGrade\":").append(String.format(Locale.ROOT, "%.3f", snapshot.getMeanGrade()))
+                    .append(",\"otherGrades\":").append(snapshot.getOtherGrades())
+                    .append(",\"byGrade\":{");
+            boolean first = true;
+            for (Map.Entry<Integer, Long> entry : snapshot.getCountsByGrade().entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                json.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+                first = false;
+            }
+            json.append('}');
+            if (report != null) {
+                json.append(",\"consistent\":").append(report.isConsistent()).append(",\"check\":");
+                appendString(json, report.toString());
+            }
+            sendJson(exchange, 200, json.append('}').toString());
+        } catch (BusyException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The body is spooled to a temp file because the importer memory-maps its input. Each importer worker
+    // writes through its own connection, so the import holds one permit per worker.
+    private void handleImport(HttpExchange exchange) throws IOException {
+        Path upload = null;
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            boolean upsert = Boolean.parseBoolean(parseForm(exchange.getRequestURI().getRawQuery()).get("upsert"));
+            upload = Files.createTempFile("students-upload-", ".csv");
+            try (InputStream body = exchange.getRequestBody()) {
+                Files.copy(body, upload, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path file = upload;
+            BulkImportResult result = new BulkImportResult();
+            int workers = Math.min(Runtime.getRuntime().availableProcessors(), maxConcurrentCalls);
+            CsvImporter.Report report = callRepository(workers, () -> {
+                try {
+                    return new CsvImporter(workers, StudentRepository.DEFAULT_BATCH_SIZE).importFile(file,
+                            batch -> result.merge(repository.addStudents(batch.iterator(), batch.size(), upsert)));
+                } catch (IOException e) {
+                    throw new BadRequestException("Unreadable CSV: " + e.getMessage());
+                }
+            });
+            StringBuilder json = new StringBuilder(256)
+                    .append("{\"lines\":").append(report.getLines())
+                    .append(",\"rows\":").append(report.getRows())
+                    .append(",\"badLines\":").append(report.getBadLineCount())
+                    .append(",\"inserted\":").append(result.getInserted())
+                    .append(",\"updated\":").append(result.getUpdated())
+                    .append(",\"skipped\":").append(result.getSkipped())
+                    .append(",\"failed\":").append(result.getFailed())
+                    .append(",\"errors\":[");
+            List<CsvImporter.BadLine> badLines = report.getBadLines();
+            for (int i = 0; i < Math.min(10, badLines.size()); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendString(json, badLines.get(i).toString());
+            }
+            sendJson(exchange, 200, json.append("]}").toString());
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (BusyException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error importing students over HTTP: " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            if (upload != null) {
+                Files.deleteIfExists(upload);
+            }
+            exchange.close();
+        }
+    }
+
+    // Exported to a temp file first, so a read error (the stream throws) becomes a 500 instead of a truncated 200
+    private void handleExport(HttpExchange exchange) throws IOException {
+        Path export = null;
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            boolean gzip = Boolean.parseBoolean(parseForm(exchange.getRequestURI().getRawQuery()).get("gzip"));
+            export = Files.createTempFile("students-export-", gzip ? ".csv.gz" : ".csv");
+            Path file = export;
+            callRepository(() -> {
+                try (Stream<Student> students = repository.streamAllStudents()) {
+                    return new CsvExporter().export(students.iterator(), file, gzip);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            });
+            exchange.getResponseHeaders().set("Content-Type", gzip ? "application/gzip" : "text/csv; charset=utf-8");
+            exchange.getResponseHeaders().set("Content-Disposition",
+                    "attachment; filename=\"students.csv" + (gzip ? ".gz" : "") + "\"");
+            exchange.sendResponseHeaders(200, Files.size(export));
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(export, out);
+            }
+        } catch (BusyException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error exporting students over HTTP: " + e.getMessage());
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            if (export != null) {
+                Files.deleteIfExists(export);
+            }
+            exchange.close();
+        }
+    }
+
+    private interface RepositoryCall<T> {
+        T call();
+    }
+
+    private <T> T callRepository(RepositoryCall<T> call) {
+        return callRepository(1, call);
+    }
+
+    private <T> T callRepository(int permits, RepositoryCall<T> call) {
+        boolean acquired;
+        try {
+            acquired = repositoryPermits.tryAcquire(permits, acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusyException("Interrupted while waiting for the database");
+        }
+        if (!acquired) {
+            throw new BusyException("Server busy, try again later");
+        }
+        try {
+            return call.call();
+        } finally {
+            repositoryPermits.release(permits);
+        }
+    }
+
+    private static Student studentFromForm(int id, Map<String, String> form) {
+        String name = required(form, "name").trim();
+        String email = required(form, "email").trim();
+        if (name.isEmpty()) {
+            throw new BadRequestException("name must not be empty");
+        }
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
+            throw new BadRequestException("Invalid email: " + email);
+        }
+        return new Student(id, name, email, parseGrade(required(form, "grade")));
+    }
+
+    private static String required(Map<String, String> form, String key) {
+        String value = form.get(key);
+        if (value == null) {
+            throw new BadRequestException("Missing parameter: " + key);
+        }
+        return value;
+    }
+
+    private static int parseGrade(String value) {
+        int grade = parseInt(value, "grade");
+        if (grade < 1 || grade > 12) {
+            throw new BadRequestException("grade must be between 1 and 12");
+        }
+        return grade;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Parses application/x-www-form-urlencoded data (request bodies and query strings)
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return values;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                values.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                throw new BadRequestException("Malformed form data");
+            }
+        }
+        return values;
+    }
+
+    private static void appendStudents(StringBuilder json, Iterator<Student> students) {
+        boolean first = true;
+        while (students.hasNext()) {
+            if (!first) {
+                json.append(',');
+            }
+            appendStudent(json, students.next());
+            first = false;
+        }
+    }
+
+    private static StringBuilder appendStudent(StringBuilder json, Student student) {
+        json.append("{\"id\":").append(student.getId()).append(",\"name\":");
+        appendString(json, student.getName());
+        json.append(",\"email\":");
+        appendString(json, student.getEmail());
+        return json.append(",\"grade\":").append(student.getGrade()).append('}');
+    }
+
+    // Null name and email columns are legal, so null is written as a JSON null
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        appendString(json, message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    private static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BusyException(String message) {
+            super(message);
+        }
+    }
+}
@@ -3,15 +3,47 @@ import java.io.*;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentManagementSystem {
     private static final Scanner scanner = new Scanner(System.in);
-    private static final StudentDAO studentDAO = new StudentDAO();
+    private static final StudentRepository studentDAO = createStudentRepository();
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static ProcessingEngine processingEngine;
+    private static StudentSearchIndex searchIndex;
+    private static final StudentStatistics statistics = new StudentStatistics();
 
     public static void main(String[] args) {
-        // Initialize the database
-        initializeDatabase();
+        // Initialize the database (JDBC backend only) and publish operation metrics over JMX
+        if (backend() instanceof StudentDAO) {
+            initializeDatabase();
+        } else if (backend() instanceof ShardedStudentRepository) {
+            initializeShards((ShardedStudentRepository) backend());
+        } else {
+            System.out.println("Using the in-memory columnar backend; data is not persisted.");
+        }
+        OperationMetrics.registerMBeans();
+        buildStatistics();
+        buildSearchIndex();
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? args[1] : null);
+            return;
+        }
+        // --dump <file> [--compress] and --restore <file> [--upsert] run once and exit
+        if (args.length > 1 && (args[0].equals("--dump") || args[0].equals("--restore"))) {
+            boolean option = args.length > 2 && args[2].equals(args[0].equals("--dump") ? "--compress" : "--upsert");
+            if (args[0].equals("--dump")) {
+                dumpSnapshot(args[1], option);
+            } else {
+                restoreSnapshot(args[1], option);
+            }
+            closeStorage();
+            return;
+        }
 
         boolean running = true;
         while (running) {
@@ -50,6 +82,24 @@ public class StudentManagementSystem {
                     processConcurrently();
                     break;
                 case 11:
+                    browseStudentsByPage();
+                    break;
+                case 12:
+                    showDiagnostics();
+                    break;
+                case 13:
+                    searchStudents();
+                    break;
+                case 14:
+                    showStatistics();
+                    break;
+                case 15:
+                    bulkUpdateOrDelete();
+                    break;
+                case 16:
+                    dumpOrRestoreSnapshot();
+                    break;
+                case 17:
                     System.out.println("Thank you for using the Student Management System. Goodbye!");
                     running = false;
                     break;
@@ -64,8 +114,57 @@ public class StudentManagementSystem {
             }
         }
 
-        // Close the scanner when done
+        // Close the scanner, the worker pool and the connection pool (if one was opened) when done
         scanner.close();
+        if (processingEngine != null) {
+            processingEngine.close();
+        }
+        closeStorage();
+    }
+
+    // Drains buffered writes, then closes the connection pool(s) of the backend if it has any
+    private static void closeStorage() {
+        if (studentDAO instanceof WriteBehindStudentRepository) {
+            ((WriteBehindStudentRepository) studentDAO).close();
+        }
+        if (backend() instanceof StudentDAO) {
+            DatabaseConnection.getInstance().shutdown();
+        } else if (backend() instanceof ShardedStudentRepository) {
+            ((ShardedStudentRepository) backend()).close();
+        }
+    }
+
+    // Headless mode: serves the HTTP API until the process is stopped, then drains and closes like Exit does
+    private static void runServer(String portArgument) {
+        int port;
+        try {
+            port = portArgument == null ? StudentHttpServer.DEFAULT_PORT : Integer.parseInt(portArgument);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid port: " + portArgument);
+            return;
+        }
+        StudentHttpServer server;
+        try {
+            server = StudentHttpServer.fromSystemProperties(studentDAO, searchIndex, statistics, port);
+        } catch (IOException e) {
+            System.err.println("Error starting HTTP server: " + e.getMessage());
+            return;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            closeStorage();
+            stopped.countDown();
+        }, "http-server-shutdown"));
+        server.start();
+        System.out.println("Serving the student API on http://localhost:" + server.getPort() + "/students (" +
+                (server.isUsingVirtualThreads() ? "virtual threads" : "platform thread pool") +
+                "). Press Ctrl+C to stop.");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private static void displayMenu() {
@@ -79,9 +178,15 @@ public class StudentManagementSystem {
         System.out.println("7. Import Students from File");
         System.out.println("8. Filter Students by Grade");
         System.out.println("9. Sort Students Alphabetically");
-        System.out.println("10. Process Students Concurrently (Thread Demo)");
-        System.out.println("11. Exit");
-        System.out.print("Enter your choice (1-11): ");
+        System.out.println("10. Process Students Concurrently");
+        System.out.println("11. Browse Students by Page");
+        System.out.println("12. Show Diagnostics");
+        System.out.println("13. Search Students by Name or Email");
+        System.out.println("14. Show Student Statistics");
+        System.out.println("15. Bulk Update or Delete Students");
+        System.out.println("16. Dump or Restore Binary Snapshot");
+        System.out.println("17. Exit");
+        System.out.print("Enter your choice (1-17): ");
     }
 
     private static int getUserChoice() {
@@ -127,20 +232,34 @@ public class StudentManagementSystem {
         }
 
         Student student = new Student(id, name, email, grade);
-        studentDAO.addStudent(student);
+        try {
+            if (!studentDAO.addStudent(student)) {
+                System.out.println("A student with this ID already exists.");
+                return;
+            }
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
         System.out.println("Student added successfully!");
     }
 
     private static void displayAllStudents() {
         System.out.println("\n----- ALL STUDENTS -----");
-        List<Student> students = studentDAO.getAllStudents();
+        long count = 0;
+        try (Stream<Student> students = studentDAO.streamAllStudents()) {
+            Iterator<Student> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                System.out.println(iterator.next());
+                count++;
+            }
+        } catch (IllegalStateException e) {
+            System.err.println("Error listing students: " + e.getMessage());
+            return;
+        }
 
-        if (students.isEmpty()) {
+        if (count == 0) {
             System.out.println("No students found in the database.");
-        } else {
-            for (Student student : students) {
-                System.out.println(student);
-            }
         }
     }
 
@@ -188,13 +307,18 @@ public class StudentManagementSystem {
                 int grade = gradeStr.isEmpty() ? student.getGrade() : Integer.parseInt(gradeStr);
 
                 Student updatedStudent = new Student(id, name, email, grade);
-                studentDAO.updateStudent(updatedStudent);
-                System.out.println("Student information updated successfully!");
+                if (studentDAO.updateStudent(updatedStudent)) {
+                    System.out.println("Student information updated successfully!");
+                } else {
+                    System.out.println("No student found with ID: " + id);
+                }
             } else {
                 System.out.println("No student found with ID: " + id);
             }
         } catch (NumberFormatException e) {
             System.out.println("Invalid input format. Please enter valid numbers.");
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
         }
     }
 
@@ -214,8 +338,11 @@ public class StudentManagementSystem {
                 String confirmation = scanner.nextLine().toLowerCase();
 
                 if (confirmation.equals("y") || confirmation.equals("yes")) {
-                    studentDAO.deleteStudent(id);
-                    System.out.println("Student deleted successfully!");
+                    if (studentDAO.deleteStudent(id)) {
+                        System.out.println("Student deleted successfully!");
+                    } else {
+                        System.out.println("No student found with ID: " + id);
+                    }
                 } else {
                     System.out.println("Deletion cancelled.");
                 }
@@ -224,26 +351,41 @@ public class StudentManagementSystem {
             }
         } catch (NumberFormatException e) {
             System.out.println("Invalid ID format. Please enter a number.");
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
         }
     }
 
     private static void exportToFile() {
         System.out.println("\n----- EXPORT STUDENTS TO FILE -----");
-        System.out.print("Enter filename (default: students.txt): ");
+        System.out.print("Enter filename (default: students.txt, use a .gz suffix to compress): ");
         String filename = scanner.nextLine();
 
         if (filename.isEmpty()) {
             filename = "students.txt";
         }
 
-        List<Student> students = studentDAO.getAllStudents();
-        if (students.isEmpty()) {
+        if (backend() instanceof StudentDAO) {
+            System.out.print("Export the (f)ull table or only (c)hanges since the last delta export? (default: f): ");
+            if (scanner.nextLine().trim().toLowerCase().startsWith("c")) {
+                exportChangesToFile(filename);
+                return;
+            }
+        }
+
+        CsvExporter.Report report = exportStudentsToFile(filename);
+        if (report == null) {
+            return;
+        }
+        if (report.getRows() == 0) {
+            new File(filename).delete();
             System.out.println("No students to export.");
             return;
         }
 
-        exportStudentsToFile(students, filename);
-        System.out.println("Students exported to " + filename + " successfully!");
+        System.out.println(report.getRows() + " students exported to " + filename + " successfully!");
+        System.out.printf("Wrote %,d bytes (%,d uncompressed) in %d ms, %,.0f rows/sec%n", report.getBytesWritten(),
+                report.getBytesEncoded(), report.getElapsedNanos() / 1_000_000, report.getRowsPerSecond());
     }
 
     private static void importFromFile() {
@@ -261,27 +403,97 @@ public class StudentManagementSystem {
             return;
         }
 
-        List<Student> importedStudents = importStudentsFromFile(filename);
-        System.out.println("Imported " + importedStudents.size() + " students from file.");
-
-        System.out.print("Would you like to add these students to the database? (y/n): ");
+        System.out.print("Would you like to add the students in " + filename + " to the database? (y/n): ");
         String confirmation = scanner.nextLine().toLowerCase();
 
         if (confirmation.equals("y") || confirmation.equals("yes")) {
-            for (Student student : importedStudents) {
-                if (studentDAO.getStudentById(student.getId()) == null) {
-                    studentDAO.addStudent(student);
-                    System.out.println("Added: " + student);
-                } else {
-                    System.out.println("Skipped (ID exists): " + student);
+            BulkImportResult result = new BulkImportResult();
+            CsvImporter.Report report = importStudentsFromFile(filename,
+                    batch -> result.merge(studentDAO.addStudents(batch)));
+            if (report == null) {
+                return;
+            }
+
+            System.out.println("Read " + report.getRows() + " students from " + report.getLines() + " lines in " +
+                    report.getElapsedNanos() / 1_000_000 + " ms.");
+            if (report.getBadLineCount() > 0) {
+                System.out.println("Rejected " + report.getBadLineCount() + " malformed lines:");
+                report.getBadLines().stream().limit(10).forEach(badLine -> System.out.println("  " + badLine));
+                if (report.getBadLineCount() > 10) {
+                    System.out.println("  ...");
                 }
             }
+            System.out.println("Added: " + result.getInserted() + ", skipped (ID exists): " + result.getSkipped() +
+                    (result.getFailed() > 0 ? ", failed: " + result.getFailed() : "") +
+                    " (" + result.getBatches().size() + " batches)");
             System.out.println("Import completed!");
         } else {
             System.out.println("Import cancelled.");
         }
     }
 
+    private static void dumpOrRestoreSnapshot() {
+        System.out.println("\n----- BINARY SNAPSHOT -----");
+        System.out.print("(d)ump all students to a snapshot or (r)estore one? ");
+        String action = scanner.nextLine().trim().toLowerCase();
+        if (!action.startsWith("d") && !action.startsWith("r")) {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        System.out.print("Enter snapshot filename (default: students.snap): ");
+        String filename = scanner.nextLine().trim();
+        if (filename.isEmpty()) {
+            filename = "students.snap";
+        }
+
+        if (action.startsWith("d")) {
+            System.out.print("Compress the snapshot? (y/n): ");
+            dumpSnapshot(filename, scanner.nextLine().trim().toLowerCase().startsWith("y"));
+        } else {
+            System.out.print("Replace students whose ID already exists? (y/n): ");
+            restoreSnapshot(filename, scanner.nextLine().trim().toLowerCase().startsWith("y"));
+        }
+    }
+
+    private static void dumpSnapshot(String filename, boolean compress) {
+        StudentSnapshot.Report report;
+        try (Stream<Student> students = studentDAO.streamAllStudents()) {
+            report = new StudentSnapshot().dump(students.iterator(), new File(filename).toPath(), compress);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Dumped %,d students to %s: %,d bytes in %d ms (%,.0f rows/s)%n", report.getRows(),
+                filename, report.getBytesWritten(), report.getElapsedNanos() / 1_000_000, report.getRowsPerSecond());
+    }
+
+    // Checks every block before writing anything, so a damaged file is rejected instead of half-restored
+    private static void restoreSnapshot(String filename, boolean upsert) {
+        StudentSnapshot snapshot = new StudentSnapshot();
+        File file = new File(filename);
+        if (!file.exists()) {
+            System.out.println("File not found: " + filename);
+            return;
+        }
+        long start = System.nanoTime();
+        BulkImportResult result;
+        try {
+            long rows = snapshot.verify(file.toPath());
+            System.out.printf("Snapshot OK: %,d students (checked in %d ms)%n", rows,
+                    (System.nanoTime() - start) / 1_000_000);
+            try (StudentSnapshot.SnapshotReader students = snapshot.open(file.toPath())) {
+                result = studentDAO.addStudents(students, StudentRepository.DEFAULT_BATCH_SIZE, upsert);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error restoring snapshot: " + e.getMessage());
+            return;
+        }
+        System.out.println("Added: " + result.getInserted() + ", updated: " + result.getUpdated() +
+                ", skipped (ID exists): " + result.getSkipped() +
+                (result.getFailed() > 0 ? ", failed: " + result.getFailed() : "") +
+                " (" + result.getBatches().size() + " batches, " + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+
     private static void filterByGrade() {
         System.out.println("\n----- FILTER STUDENTS BY GRADE -----");
         System.out.print("Enter grade to filter by: ");
@@ -289,9 +501,7 @@ public class StudentManagementSystem {
         try {
             int grade = Integer.parseInt(scanner.nextLine());
 
-            List<Student> filteredStudents = studentDAO.getAllStudents().stream()
-                    .filter(s -> s.getGrade() == grade)
-                    .collect(Collectors.toList());
+            List<Student> filteredStudents = studentDAO.getStudentsByGrade(grade);
 
             long count = filteredStudents.size();
 
@@ -308,104 +518,478 @@ public class StudentManagementSystem {
 
     private static void sortStudentsAlphabetically() {
         System.out.println("\n----- STUDENTS SORTED ALPHABETICALLY -----");
+        System.out.print("Sort by (default: name; keys id, name, email, grade, e.g. \"grade desc, name\"): ");
+        String specification = scanner.nextLine().trim();
+        System.out.print("Write to a file instead of the screen? Enter filename (.gz to compress) or leave empty: ");
+        String filename = scanner.nextLine().trim();
+
+        // Name order comes from the backend's own index; any other order goes through the external sorter,
+        // which holds at most -Dsms.sort.memoryMb of students and spills the rest to temporary files
+        ExternalStudentSorter.Sorted sorted = null;
+        if (!specification.isEmpty() && !specification.equalsIgnoreCase("name")) {
+            try (Stream<Student> students = studentDAO.streamAllStudents()) {
+                sorted = ExternalStudentSorter.fromSystemProperties()
+                        .sort(students.iterator(), ExternalStudentSorter.parseOrder(specification));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                System.err.println("Error sorting students: " + e.getMessage());
+                return;
+            }
+        }
 
-        List<Student> sortedStudents = studentDAO.getAllStudents().stream()
-                .sorted(Comparator.comparing(Student::getName))
-                .collect(Collectors.toList());
+        long count = 0;
+        try (Stream<Student> sortedStudents = sorted != null ? sorted.stream() : studentDAO.streamStudentsSortedByName()) {
+            Iterator<Student> iterator = sortedStudents.iterator();
+            if (!filename.isEmpty()) {
+                CsvExporter.Report report = new CsvExporter().export(iterator, new File(filename).toPath(),
+                        filename.endsWith(".gz"));
+                count = report.getRows();
+                System.out.println(count + " sorted students exported to " + filename + ".");
+            } else {
+                while (iterator.hasNext()) {
+                    System.out.println(iterator.next());
+                    count++;
+                }
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            System.err.println("Error writing sorted students: " + e.getMessage());
+            return;
+        }
 
-        if (sortedStudents.isEmpty()) {
+        if (count == 0) {
             System.out.println("No students to sort.");
-        } else {
-            sortedStudents.forEach(System.out::println);
+        } else if (sorted != null) {
+            System.out.println("Sort: " + sorted);
         }
     }
 
-    private static void processConcurrently() {
-        System.out.println("\n----- PROCESSING STUDENTS CONCURRENTLY -----");
+    private static void searchStudents() {
+        System.out.println("\n----- SEARCH STUDENTS -----");
+        if (searchIndex == null) {
+            System.out.println("Search is disabled (run without -Dsms.search.enabled=false to enable it).");
+            return;
+        }
+        System.out.print("Enter part of a name or email: ");
+        String query = scanner.nextLine().trim();
+        if (query.isEmpty()) {
+            System.out.println("Search text cannot be empty.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Student> matches = searchIndex.search(query, StudentSearchIndex.DEFAULT_LIMIT);
+        long micros = (System.nanoTime() - start) / 1_000;
+        if (matches.isEmpty()) {
+            System.out.println("No students match \"" + query + "\".");
+            return;
+        }
+        System.out.println("Top " + matches.size() + " matches (" + micros + " us):");
+        matches.forEach(System.out::println);
+    }
+
+    private static void bulkUpdateOrDelete() {
+        System.out.println("\n----- BULK UPDATE OR DELETE -----");
+        System.out.println("Select students by:");
+        System.out.println("1. Grade range");
+        System.out.println("2. ID range");
+        System.out.println("3. List of IDs");
+        System.out.println("4. Email domain");
+        System.out.print("Enter your choice (1-4): ");
+        StudentFilter filter;
+        try {
+            switch (getUserChoice()) {
+                case 1:
+                    System.out.print("Enter lowest grade: ");
+                    int minGrade = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.print("Enter highest grade: ");
+                    filter = StudentFilter.gradeRange(minGrade, Integer.parseInt(scanner.nextLine().trim()));
+                    break;
+                case 2:
+                    System.out.print("Enter lowest ID: ");
+                    int minId = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.print("Enter highest ID: ");
+                    filter = StudentFilter.idRange(minId, Integer.parseInt(scanner.nextLine().trim()));
+                    break;
+                case 3:
+                    System.out.print("Enter IDs separated by commas: ");
+                    filter = StudentFilter.idList(Arrays.stream(scanner.nextLine().split(","))
+                            .map(String::trim).filter(id -> !id.isEmpty()).mapToInt(Integer::parseInt).toArray());
+                    break;
+                case 4:
+                    System.out.print("Enter email domain (e.g. school.edu): ");
+                    filter = StudentFilter.emailDomain(scanner.nextLine());
+                    break;
+                default:
+                    System.out.println("Invalid choice.");
+                    return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input format. Please enter valid numbers.");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        System.out.print("(s)et grade, (p)romote/demote by a number of grades, or (d)elete the selected students? ");
+        String action = scanner.nextLine().trim().toLowerCase();
+        GradeChange change = null;
+        try {
+            if (action.startsWith("s")) {
+                System.out.print("Enter new grade (1-12): ");
+                int grade = Integer.parseInt(scanner.nextLine().trim());
+                if (grade < 1 || grade > 12) {
+                    System.out.println("Grade must be between 1 and 12.");
+                    return;
+                }
+                change = GradeChange.setTo(grade);
+            } else if (action.startsWith("p")) {
+                System.out.print("Enter number of grades to move (e.g. 1 or -1): ");
+                change = GradeChange.shiftBy(Integer.parseInt(scanner.nextLine().trim()));
+            } else if (!action.startsWith("d")) {
+                System.out.println("Invalid choice.");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input format. Please enter a valid number.");
+            return;
+        }
 
-        List<Student> students = studentDAO.getAllStudents();
-        if (students.isEmpty()) {
-            System.out.println("No students to process.");
+        System.out.print("Apply " + (change == null ? "delete" : change.toString()) + " to " + filter + "? (y/n): ");
+        String confirmation = scanner.nextLine().toLowerCase();
+        if (!confirmation.equals("y") && !confirmation.equals("yes")) {
+            System.out.println("Bulk operation cancelled.");
             return;
         }
 
-        processStudentsConcurrently(students);
+        long start = System.nanoTime();
+        int affected = change == null ? studentDAO.deleteStudents(filter) : studentDAO.updateStudents(filter, change);
+        System.out.println((change == null ? "Deleted " : "Updated ") + affected + " students in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms.");
     }
 
-    private static void initializeDatabase() {
+    private static void showStatistics() {
+        System.out.println("\n----- STUDENT STATISTICS -----");
+        StudentStatistics.Snapshot snapshot = statistics.getSnapshot();
+        System.out.println("Total students: " + snapshot.getTotal());
+        if (snapshot.getTotal() > 0) {
+            System.out.printf("Mean grade: %.2f%n", snapshot.getMeanGrade());
+        }
+        System.out.println("Students per grade:");
+        snapshot.getCountsByGrade().forEach((grade, count) -> System.out.printf("  Grade %2d: %d%n", grade, count));
+        if (snapshot.getOtherGrades() > 0) {
+            System.out.println("  Other grades: " + snapshot.getOtherGrades());
+        }
+
+        System.out.print("Check these counts against the stored students? (y/n): ");
+        String confirmation = scanner.nextLine().toLowerCase();
+        if (confirmation.equals("y") || confirmation.equals("yes")) {
+            StudentStatistics.ConsistencyReport report = statistics.verify(studentDAO);
+            System.out.println(report);
+            if (report.isChecked() && !report.isConsistent()) {
+                try {
+                    System.out.println("Rebuilt statistics: " + statistics.rebuild(studentDAO) + " students.");
+                } catch (IllegalStateException e) {
+                    System.err.println("Error rebuilding statistics: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Counts the roster once at startup; the counters then follow writes as a change listener
+    private static void buildStatistics() {
+        studentDAO.addChangeListener(statistics);
         try {
-            DatabaseConnection.getInstance().getConnection().createStatement().execute(
-                    "CREATE TABLE IF NOT EXISTS students (" +
-                            "id INT PRIMARY KEY, " +
-                            "name VARCHAR(100), " +
-                            "email VARCHAR(100), " +
-                            "grade INT)");
-            System.out.println("Database initialized successfully.");
-        } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
+            statistics.rebuild(studentDAO);
+        } catch (IllegalStateException e) {
+            System.err.println("Error building statistics: " + e.getMessage());
         }
     }
 
-    private static void exportStudentsToFile(List<Student> students, String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Student student : students) {
-                writer.println(student.getId() + "," + student.getName() + "," +
-                        student.getEmail() + "," + student.getGrade());
+    // Indexes the current roster once at startup; the index then follows writes as a change listener
+    private static void buildSearchIndex() {
+        if (!Boolean.parseBoolean(System.getProperty("sms.search.enabled", "true"))) {
+            return;
+        }
+        long start = System.nanoTime();
+        StudentSearchIndex index = new StudentSearchIndex();
+        studentDAO.addChangeListener(index);
+        long indexed;
+        try {
+            indexed = index.load(studentDAO);
+        } catch (IllegalStateException e) {
+            // A partial index would silently miss students, so search stays off
+            studentDAO.removeChangeListener(index);
+            System.err.println("Error building search index: " + e.getMessage());
+            return;
+        }
+        searchIndex = index;
+        if (indexed > 0) {
+            System.out.println("Indexed " + indexed + " students for search in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms.");
+        }
+    }
+
+    private static void browseStudentsByPage() {
+        System.out.println("\n----- BROWSE STUDENTS BY PAGE -----");
+        Integer grade = null;
+        int pageSize;
+        try {
+            System.out.print("Enter grade to filter by (or press Enter for all grades): ");
+            String gradeStr = scanner.nextLine();
+            grade = gradeStr.isEmpty() ? null : Integer.parseInt(gradeStr);
+
+            System.out.print("Enter page size (default: 20): ");
+            String pageSizeStr = scanner.nextLine();
+            pageSize = pageSizeStr.isEmpty() ? 20 : Integer.parseInt(pageSizeStr);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input format. Please enter valid numbers.");
+            return;
+        }
+        if (pageSize <= 0) {
+            System.out.println("Page size must be positive.");
+            return;
+        }
+
+        Student last = null;
+        int pageNumber = 1;
+        while (true) {
+            List<Student> page;
+            try {
+                page = studentDAO.getStudentsPage(grade, last, pageSize);
+            } catch (IllegalStateException e) {
+                System.err.println("Error reading students: " + e.getMessage());
+                return;
             }
-        } catch (IOException e) {
-            System.err.println("Error exporting students to file: " + e.getMessage());
+            if (page.isEmpty()) {
+                System.out.println(pageNumber == 1 ? "No students found." : "No more students.");
+                return;
+            }
+
+            System.out.println("\nPage " + pageNumber + ":");
+            page.forEach(System.out::println);
+            if (page.size() < pageSize) {
+                System.out.println("End of results.");
+                return;
+            }
+
+            System.out.print("Press Enter for the next page or type 'q' to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            last = page.get(page.size() - 1);
+            pageNumber++;
+        }
+    }
+
+    private static void processConcurrently() {
+        System.out.println("\n----- PROCESSING STUDENTS CONCURRENTLY -----");
+
+        System.out.println("1. Print each student with its worker thread");
+        System.out.println("2. Validate email addresses");
+        System.out.println("3. Compute grade distribution");
+        System.out.print("Choose a task (1-3): ");
+        int task = getUserChoice();
+        if (task < 1 || task > 3) {
+            System.out.println("Invalid choice.");
+            return;
         }
+
+        try (Stream<Student> students = studentDAO.streamAllStudents()) {
+            Iterator<Student> iterator = students.iterator();
+            if (!iterator.hasNext()) {
+                System.out.println("No students to process.");
+                return;
+            }
+
+            ProcessingEngine engine = getProcessingEngine();
+            System.out.println("Processing on " + engine.getParallelism() + " worker threads...");
+            ProcessingEngine.ProcessingResult<?> result;
+            switch (task) {
+                case 1:
+                    result = engine.process(iterator, student -> {
+                        System.out.println(Thread.currentThread().getName() + ": " + student);
+                        return student;
+                    }, Collectors.counting());
+                    break;
+                case 2:
+                    ProcessingEngine.ProcessingResult<List<Student>> invalid = engine.process(iterator,
+                            student -> student, Collectors.filtering(
+                                    student -> student.getEmail() == null ||
+                                            !EMAIL_PATTERN.matcher(student.getEmail()).matches(),
+                                    Collectors.toList()));
+                    System.out.println(invalid.getValue().size() + " students have an invalid email address:");
+                    invalid.getValue().stream().limit(20).forEach(System.out::println);
+                    result = invalid;
+                    break;
+                default:
+                    ProcessingEngine.ProcessingResult<Map<Integer, Long>> distribution = engine.process(iterator,
+                            Student::getGrade, Collectors.groupingBy(grade -> grade, TreeMap::new, Collectors.counting()));
+                    distribution.getValue().forEach((grade, count) ->
+                            System.out.println("Grade " + grade + ": " + count + " students"));
+                    result = distribution;
+                    break;
+            }
+
+            System.out.println("\n" + result);
+            result.getErrors().forEach(error -> System.out.println("  Failed: " + error));
+        } catch (IllegalStateException e) {
+            System.err.println("Error processing students: " + e.getMessage());
+        }
+    }
+
+    // Created on first use and reused, so the worker threads are not rebuilt on every run
+    private static synchronized ProcessingEngine getProcessingEngine() {
+        if (processingEngine == null) {
+            processingEngine = new ProcessingEngine();
+        }
+        return processingEngine;
+    }
+
+    // -Dsms.writeBehind.enabled=true buffers adds and updates in memory and writes them in batches
+    private static StudentRepository createStudentRepository() {
+        StudentRepository repository = createBackend();
+        if (Boolean.parseBoolean(System.getProperty("sms.writeBehind.enabled", "false"))) {
+            return WriteBehindStudentRepository.fromSystemProperties(repository);
+        }
+        return repository;
     }
 
-    private static List<Student> importStudentsFromFile(String filename) {
-        List<Student> students = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 4) {
-                    int id = Integer.parseInt(parts[0]);
-                    String name = parts[1];
-                    String email = parts[2];
-                    int grade = Integer.parseInt(parts[3]);
-                    students.add(new Student(id, name, email, grade));
+    // -Dsms.backend=jdbc (default) stores students in H2; -Dsms.backend=columnar keeps them in memory;
+    // -Dsms.backend=sharded spreads them over -Dsms.shards H2 databases by ID hash.
+    // For JDBC the read-through cache is on by default; run with -Dsms.cache.enabled=false to go straight to H2
+    private static StudentRepository createBackend() {
+        String backend = System.getProperty("sms.backend", "jdbc");
+        switch (backend) {
+            case "columnar":
+                return new ColumnarStudentStore();
+            case "sharded":
+                return ShardedStudentRepository.fromSystemProperties();
+            case "jdbc":
+                if (Boolean.parseBoolean(System.getProperty("sms.cache.enabled", "true"))) {
+                    return new CachedStudentDAO(StudentCache.fromSystemProperties());
                 }
+                return new StudentDAO();
+            default:
+                throw new IllegalArgumentException("Unknown sms.backend: " + backend + " (expected jdbc, columnar or sharded)");
+        }
+    }
+
+    // The storage backend underneath the write-behind buffer, if there is one
+    private static StudentRepository backend() {
+        if (studentDAO instanceof WriteBehindStudentRepository) {
+            return ((WriteBehindStudentRepository) studentDAO).getDelegate();
+        }
+        return studentDAO;
+    }
+
+    private static void showDiagnostics() {
+        System.out.println("\n----- DIAGNOSTICS -----");
+        StudentRepository backend = backend();
+        if (backend instanceof StudentDAO) {
+            System.out.println("Connection pool: " + DatabaseConnection.getInstance().getPoolStats());
+        }
+        if (backend instanceof ShardedStudentRepository) {
+            System.out.println("Shards: " + ((ShardedStudentRepository) backend).getShardStats());
+        }
+        if (backend instanceof ColumnarStudentStore) {
+            System.out.println("Columnar store: " + ((ColumnarStudentStore) backend).size() + " students in memory");
+        }
+        if (backend instanceof CachedStudentDAO) {
+            System.out.println("Student cache: " + ((CachedStudentDAO) backend).getCacheStats());
+        }
+        if (searchIndex != null) {
+            System.out.println("Search index: " + searchIndex.getStats());
+        }
+        if (studentDAO instanceof WriteBehindStudentRepository) {
+            System.out.println("Write-behind buffer: " + ((WriteBehindStudentRepository) studentDAO).getStats());
+        }
+        System.out.println("\nOperation metrics (also available over JMX as sms:type=Operation,*):");
+        System.out.print(OperationMetrics.dump());
+    }
+
+    // Opens the store and only runs schema DDL when the stored schema version is behind,
+    // so a warm start of a file-backed database does no schema work
+    private static void initializeDatabase() {
+        DatabaseConnection database = DatabaseConnection.getInstance();
+        long start = System.nanoTime();
+        try (Connection connection = database.getConnection()) {
+            int installedVersion = StudentSchema.ensure(connection);
+            long schemaMillis = (System.nanoTime() - start) / 1_000_000;
+            long openMillis = database.getOpenNanos() / 1_000_000;
+            String storage = database.getConfig().isPersistent() ? "file-backed" : "in-memory";
+            if (installedVersion == StudentSchema.VERSION) {
+                System.out.println("Opened existing " + storage + " database in " + openMillis + " ms " +
+                        "(schema v" + installedVersion + " check " + schemaMillis + " ms).");
+            } else {
+                System.out.println("Database initialized successfully (" + storage + ", schema v" +
+                        StudentSchema.VERSION + ", open " + openMillis + " ms, schema " + schemaMillis + " ms).");
             }
-        } catch (IOException e) {
-            System.err.println("Error importing students from file: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Error initializing database: " + e.getMessage());
         }
-        return students;
     }
 
-    private static void processStudentsConcurrently(List<Student> students) {
-        int midpoint = students.size() / 2;
-        List<Student> firstHalf = students.subList(0, midpoint);
-        List<Student> secondHalf = students.subList(midpoint, students.size());
+    private static void initializeShards(ShardedStudentRepository shards) {
+        long start = System.nanoTime();
+        try {
+            int upgraded = shards.initializeSchemas();
+            System.out.println("Opened " + shards.getShardCount() + " " +
+                    (shards.isPersistent() ? "file-backed" : "in-memory") + " shards in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms (schema v" + StudentSchema.VERSION + ", " +
+                    upgraded + " initialized or upgraded).");
+        } catch (SQLException e) {
+            System.err.println("Error initializing shards: " + e.getMessage());
+        }
+    }
 
-        ExecutorService executor = Executors.newFixedThreadPool(2);
-        CountDownLatch latch = new CountDownLatch(2);
+    // Writes U,id,name,email,grade and D,id lines for what changed since the checkpoint of
+    // -Dsms.export.consumer (default "default"), then advances that checkpoint
+    private static void exportChangesToFile(String filename) {
+        if (studentDAO instanceof WriteBehindStudentRepository) {
+            ((WriteBehindStudentRepository) studentDAO).flush();
+        }
+        String consumer = System.getProperty("sms.export.consumer", DeltaExporter.DEFAULT_CONSUMER);
+        DeltaExporter.Report report;
+        try {
+            report = new DeltaExporter((StudentDAO) backend()).export(consumer, new File(filename).toPath(),
+                    filename.endsWith(".gz"));
+        } catch (IOException | SQLException e) {
+            System.err.println("Error exporting student changes: " + e.getMessage());
+            return;
+        }
 
-        executor.submit(() -> {
-            System.out.println("\nThread 1 processing first half of students:");
-            firstHalf.forEach(student ->
-                    System.out.println("Thread 1: " + student));
-            latch.countDown();
-        });
+        CsvExporter.Report written = report.getWritten();
+        if (written.getRows() == 0) {
+            new File(filename).delete();
+            System.out.println("No changes since the last delta export for '" + consumer + "'.");
+            return;
+        }
+        System.out.println(report.getUpserts() + " changed and " + report.getDeletes() + " deleted students " +
+                "exported to " + filename + " (versions " + report.getFromVersion() + " to " + (report.getToVersion() - 1) + ").");
+        System.out.printf("Wrote %,d bytes in %d ms; checkpoint for '%s' is now %d%n", written.getBytesWritten(),
+                written.getElapsedNanos() / 1_000_000, consumer, report.getToVersion());
+    }
 
-        executor.submit(() -> {
-            System.out.println("\nThread 2 processing second half of students:");
-            secondHalf.forEach(student ->
-                    System.out.println("Thread 2: " + student));
-            latch.countDown();
-        });
+    // Streams rows from the database straight into the file; a .gz filename turns on gzip compression
+    private static CsvExporter.Report exportStudentsToFile(String filename) {
+        try (Stream<Student> students = studentDAO.streamAllStudents()) {
+            return new CsvExporter().export(students.iterator(), new File(filename).toPath(), filename.endsWith(".gz"));
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Error exporting students to file: " + e.getMessage());
+            return null;
+        }
+    }
 
+    // Parses the file in parallel and passes each batch of students to the sink as it is parsed
+    private static CsvImporter.Report importStudentsFromFile(String filename, Consumer<List<Student>> sink) {
         try {
-            latch.await(); // Wait for both threads to finish
-            System.out.println("\nAll threads completed processing");
-        } catch (InterruptedException e) {
-            System.err.println("Thread interrupted: " + e.getMessage());
-        } finally {
-            executor.shutdown();
+            return new CsvImporter().importFile(new File(filename).toPath(), sink);
+        } catch (IOException e) {
+            System.err.println("Error importing students from file: " + e.getMessage());
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+// Storage-independent interface for reading and writing students, implemented by the JDBC DAO and the in-memory columnar store
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+interface StudentRepository {
+    int DEFAULT_BATCH_SIZE = 1000;
+
+    // Single-student writes return false if the ID already exists (add) or does not exist (update, delete);
+    // a storage failure throws IllegalStateException
+    boolean addStudent(Student student);
+
+    default BulkImportResult addStudents(Collection<Student> students) {
+        return addStudents(students.iterator(), DEFAULT_BATCH_SIZE, false);
+    }
+
+    // In insert mode existing IDs are skipped, in upsert mode they are overwritten
+    BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert);
+
+    Student getStudentById(int id);
+
+    List<Student> getAllStudents();
+
+    // Streams hold resources until closed, so callers must use try-with-resources
+    Stream<Student> streamAllStudents();
+
+    default void forEachStudent(Consumer<Student> action) {
+        try (Stream<Student> students = streamAllStudents()) {
+            students.forEach(action);
+        }
+    }
+
+    // Ordered by (name, id)
+    Stream<Student> streamStudentsByGrade(int grade);
+
+    default List<Student> getStudentsByGrade(int grade) {
+        try (Stream<Student> students = streamStudentsByGrade(grade)) {
+            return students.collect(Collectors.toList());
+        }
+    }
+
+    // Ordered by (name, id)
+    Stream<Student> streamStudentsSortedByName();
+
+    // Number of stored students per grade, ordered by grade; backends override this with something cheaper than a scan
+    default Map<Integer, Long> countStudentsByGrade() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        forEachStudent(student -> counts.merge(student.getGrade(), 1L, Long::sum));
+        return counts;
+    }
+
+    // Keyset pagination ordered by (name, id): pass the last student of the previous page as 'after'
+    // (or null for the first page) and an optional grade filter
+    List<Student> getStudentsPage(Integer grade, Student after, int limit);
+
+    boolean updateStudent(Student student);
+
+    boolean deleteStudent(int id);
+
+    // Set-based bulk mutations; both return the number of students affected
+    int updateStudents(StudentFilter filter, GradeChange change);
+
+    int deleteStudents(StudentFilter filter);
+
+    // Registers a listener that is told about every student this repository stores or deletes
+    void addChangeListener(StudentChangeListener listener);
+
+    void removeChangeListener(StudentChangeListener listener);
+}
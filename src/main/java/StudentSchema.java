@@ -0,0 +1,77 @@
+// Creates and upgrades the students schema, tracking the installed version in a schema_info table
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class StudentSchema {
+    static final int VERSION = 2;
+
+    // Returns the version that was installed before this call (0 for an empty database).
+    // When it already equals VERSION nothing is executed, so opening an existing store costs one lookup.
+    static int ensure(Connection connection) throws SQLException {
+        int installed = installedVersion(connection);
+        if (installed == VERSION) {
+            return installed;
+        }
+        if (installed > VERSION) {
+            throw new SQLException("Database schema version " + installed + " is newer than this build (" + VERSION + ")");
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            if (installed < 1) {
+                statement.execute(
+                        "CREATE TABLE IF NOT EXISTS students (" +
+                                "id INT PRIMARY KEY, " +
+                                "name VARCHAR(100), " +
+                                "email VARCHAR(100), " +
+                                "grade INT)");
+                // Secondary indexes so grade filters and name ordering become index range scans
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_students_grade_name ON students (grade, name, id)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_students_name ON students (name, id)");
+                statement.execute("CREATE TABLE IF NOT EXISTS schema_info (version INT NOT NULL)");
+            }
+            if (installed < 2) {
+                // Change tracking for delta exports: every write stamps its row with the next value of one sequence,
+                // deletes leave a tombstone with their own stamp, and export_checkpoints records how far each
+                // consumer has read. Rows that predate tracking keep version 0, so a first delta export includes them.
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS student_change_seq START WITH 1");
+                statement.execute("ALTER TABLE students ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_students_version ON students (version)");
+                statement.execute("CREATE TABLE IF NOT EXISTS student_tombstones (" +
+                        "id INT PRIMARY KEY, " +
+                        "version BIGINT NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_student_tombstones_version ON student_tombstones (version)");
+                statement.execute("CREATE TABLE IF NOT EXISTS export_checkpoints (" +
+                        "consumer VARCHAR(100) PRIMARY KEY, " +
+                        "version BIGINT NOT NULL, " +
+                        "exported_at TIMESTAMP NOT NULL)");
+            }
+            statement.execute("DELETE FROM schema_info");
+            statement.execute("INSERT INTO schema_info (version) VALUES (" + VERSION + ")");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return installed;
+    }
+
+    private static int installedVersion(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, "SCHEMA_INFO", null)) {
+            if (!tables.next()) {
+                return 0;
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_info")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+// In-memory type-ahead index over student names and emails, kept current through StudentChangeListener.
+// Prefix queries walk a sorted set of "term\0id" keys; substring queries scan the posting list of the
+// query's rarest trigram and verify each candidate, so both stop as soon as they have enough matches.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+class StudentSearchIndex implements StudentChangeListener {
+    static final int DEFAULT_LIMIT = 10;
+    private static final char SEPARATOR = '\u0000';
+    // Stale postings are only swept once there are more of them than live ones (and at least this many)
+    private static final long MIN_STALE_TO_COMPACT = 100_000;
+
+    private final ConcurrentHashMap<Integer, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> prefixes = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Long, Postings> trigrams = new ConcurrentHashMap<>();
+    // Updates and searches share the read side; compaction takes the write side while it rebuilds the postings
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AtomicLong livePostings = new AtomicLong();
+    private final AtomicLong stalePostings = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    // Indexes everything currently in the repository; register the index as a listener first so no write is missed
+    public long load(StudentRepository repository) {
+        long count = 0;
+        try (Stream<Student> students = repository.streamAllStudents()) {
+            for (Student student : (Iterable<Student>) students::iterator) {
+                studentSaved(student);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void studentSaved(Student student) {
+        Document document = new Document(student);
+        compactionLock.readLock().lock();
+        try {
+            documents.compute(student.getId(), (id, previous) -> {
+                if (previous != null) {
+                    removePrefixes(previous);
+                }
+                addPrefixes(document);
+                Set<Long> before = previous == null ? new HashSet<>() : previous.trigrams();
+                Set<Long> after = document.trigrams();
+                for (long trigram : after) {
+                    if (!before.remove(trigram)) {
+                        trigrams.computeIfAbsent(trigram, key -> new Postings()).add(id);
+                        livePostings.incrementAndGet();
+                    }
+                }
+                // Whatever is left in 'before' no longer applies; those postings are skipped at query time
+                retire(before.size());
+                return document;
+            });
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void studentDeleted(int id) {
+        compactionLock.readLock().lock();
+        try {
+            documents.computeIfPresent(id, (key, previous) -> {
+                removePrefixes(previous);
+                retire(previous.trigrams().size());
+                return null;
+            });
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    // Name and email prefix matches first, then substring matches, up to limit students
+    public List<Student> search(String query, int limit) {
+        long start = System.nanoTime();
+        String needle = normalize(query.trim());
+        Map<Integer, Student> matches = new LinkedHashMap<>();
+        if (needle.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        compactionLock.readLock().lock();
+        try {
+            for (String key : prefixes.subSet(needle, true, needle + '\uffff', false)) {
+                int id = Integer.parseInt(key.substring(key.lastIndexOf(SEPARATOR) + 1));
+                Document document = documents.get(id);
+                if (document != null && document.hasPrefix(needle)) {
+                    matches.putIfAbsent(id, document.student);
+                    if (matches.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            if (matches.size() < limit && needle.length() >= 3) {
+                collectSubstringMatches(needle, limit, matches);
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+            OperationMetrics.SEARCH.recordLatency(start);
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    // Candidates come from the smallest posting list among the query's trigrams; each one is checked against
+    // the live document, which filters false positives as well as postings left behind by updates and deletes
+    private void collectSubstringMatches(String needle, int limit, Map<Integer, Student> matches) {
+        Postings rarest = null;
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Postings postings = trigrams.get(trigram(needle, i));
+            if (postings == null) {
+                return;
+            }
+            if (rarest == null || postings.size() < rarest.size()) {
+                rarest = postings;
+            }
+        }
+        Postings.Snapshot candidates = rarest.snapshot();
+        for (int i = 0; i < candidates.size && matches.size() < limit; i++) {
+            int id = candidates.ids[i];
+            if (matches.containsKey(id)) {
+                continue;
+            }
+            Document document = documents.get(id);
+            if (document != null && document.contains(needle)) {
+                matches.put(id, document.student);
+            }
+        }
+    }
+
+    private void addPrefixes(Document document) {
+        for (String term : document.terms()) {
+            prefixes.add(term + SEPARATOR + document.student.getId());
+        }
+    }
+
+    private void removePrefixes(Document document) {
+        for (String term : document.terms()) {
+            prefixes.remove(term + SEPARATOR + document.student.getId());
+        }
+    }
+
+    private void retire(int count) {
+        if (count > 0) {
+            livePostings.addAndGet(-count);
+            stalePostings.addAndGet(count);
+        }
+    }
+
+    private void compactIfNeeded() {
+        long stale = stalePostings.get();
+        if (stale < MIN_STALE_TO_COMPACT || stale < livePostings.get()) {
+            return;
+        }
+        if (!compactionLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            trigrams.clear();
+            long live = 0;
+            for (Document document : documents.values()) {
+                for (long trigram : document.trigrams()) {
+                    trigrams.computeIfAbsent(trigram, key -> new Postings()).add(document.student.getId());
+                    live++;
+                }
+            }
+            livePostings.set(live);
+            stalePostings.set(0);
+            compactions.incrementAndGet();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    public SearchIndexStats getStats() {
+        return new SearchIndexStats(documents.size(), prefixes.size(), trigrams.size(), livePostings.get(),
+                stalePostings.get(), compactions.get());
+    }
+
+    // Null names and emails are legal, so they index (and match) as empty text
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    // The indexed form of one student: lowercased fields plus the student handed back to callers
+    private static class Document {
+        private final Student student;
+        private final String name;
+        private final String email;
+
+        Document(Student student) {
+            this.student = student;
+            this.name = normalize(student.getName());
+            this.email = normalize(student.getEmail());
+        }
+
+        // Whole name, each word of the name, and the whole email; empty fields give no terms
+        List<String> terms() {
+            List<String> terms = new ArrayList<>(4);
+            if (!name.isEmpty()) {
+                terms.add(name);
+            }
+            int wordStart = name.indexOf(' ') + 1;
+            while (wordStart > 0) {
+                int wordEnd = name.indexOf(' ', wordStart);
+                String word = wordEnd < 0 ? name.substring(wordStart) : name.substring(wordStart, wordEnd);
+                if (!word.isEmpty()) {
+                    terms.add(word);
+                }
+                wordStart = wordEnd + 1;
+            }
+            if (!email.isEmpty()) {
+                terms.add(email);
+            }
+            return terms;
+        }
+
+        Set<Long> trigrams() {
+            Set<Long> result = new HashSet<>();
+            addTrigrams(name, result);
+            addTrigrams(email, result);
+            return result;
+        }
+
+        private static void addTrigrams(String text, Set<Long> result) {
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                result.add(trigram(text, i));
+            }
+        }
+
+        boolean hasPrefix(String needle) {
+            for (String term : terms()) {
+                if (term.startsWith(needle)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean contains(String needle) {
+            return name.contains(needle) || email.contains(needle);
+        }
+    }
+
+    // Append-only list of student IDs; readers work on a snapshot of (array, size) without copying
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        synchronized void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(ids, size);
+        }
+
+        // Slots below size are never written again, so they can be read outside the lock
+        private static class Snapshot {
+            private final int[] ids;
+            private final int size;
+
+            Snapshot(int[] ids, int size) {
+                this.ids = ids;
+                this.size = size;
+            }
+        }
+    }
+
+    static class SearchIndexStats {
+        private final int documents;
+        private final int prefixTerms;
+        private final int trigramKeys;
+        private final long livePostings;
+        private final long stalePostings;
+        private final long compactions;
+
+        SearchIndexStats(int documents, int prefixTerms, int trigramKeys, long livePostings, long stalePostings,
+                         long compactions) {
+            this.documents = documents;
+            this.prefixTerms = prefixTerms;
+            this.trigramKeys = trigramKeys;
+            this.livePostings = livePostings;
+            this.stalePostings = stalePostings;
+            this.compactions = compactions;
+        }
+
+        public int getDocuments() {
+            return documents;
+        }
+
+        public long getStalePostings() {
+            return stalePostings;
+        }
+
+        @Override
+        public String toString() {
+            return "SearchIndexStats{documents=" + documents + ", prefixTerms=" + prefixTerms + ", trigramKeys=" +
+                    trigramKeys + ", livePostings=" + livePostings + ", stalePostings=" + stalePostings +
+                    ", compactions=" + compactions + "}";
+        }
+    }
+}
@@ -0,0 +1,400 @@
+// Versioned binary snapshot of the students table for moving a roster between environments.
+// Layout: "SMSSNAP" magic, format version byte, flags byte (bit 0: blocks are deflate-compressed), then blocks of
+// [row count varint, stored length varint, raw length varint, CRC32 of the raw bytes, stored bytes], then a
+// zero row count and the total row count as a varint. Rows are zigzag varint id and grade followed by name and
+// email as varint (UTF-8 length + 1, 0 for null) and the UTF-8 bytes, so nothing is formatted or quoted.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class StudentSnapshot {
+    static final int FORMAT_VERSION = 1;
+    private static final byte[] MAGIC = "SMSSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int FLAG_COMPRESSED = 1;
+    // Raw bytes per block; a block is the unit of checksumming and compression
+    private static final int BLOCK_SIZE = 1 << 20;
+    // Rejects absurd lengths from a damaged file before allocating for them
+    private static final int MAX_BLOCK_SIZE = 64 << 20;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    // Writes every student to path; compress deflates each block at the fastest level
+    public Report dump(Iterator<Student> students, Path path, boolean compress) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long blocks = 0;
+        long rawBytes = 0;
+        Block block = new Block(BLOCK_SIZE + 1024);
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(compress ? FLAG_COMPRESSED : 0);
+            int blockRows = 0;
+            while (students.hasNext()) {
+                block.writeStudent(students.next());
+                blockRows++;
+                if (block.size >= BLOCK_SIZE) {
+                    rawBytes += block.size;
+                    writeBlock(out, block, blockRows, deflater);
+                    rows += blockRows;
+                    blocks++;
+                    blockRows = 0;
+                }
+            }
+            if (blockRows > 0) {
+                rawBytes += block.size;
+                writeBlock(out, block, blockRows, deflater);
+                rows += blockRows;
+                blocks++;
+            }
+            writeVarLong(out, 0);
+            writeVarLong(out, rows);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return new Report(rows, blocks, rawBytes, Files.size(path), compress, System.nanoTime() - start);
+    }
+
+    private static void writeBlock(DataOutputStream out, Block block, int rows, Deflater deflater) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(block.bytes, 0, block.size);
+        byte[] stored = block.bytes;
+        int storedLength = block.size;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(block.bytes, 0, block.size);
+            deflater.finish();
+            stored = new byte[block.size + block.size / 100 + 64];
+            storedLength = 0;
+            while (!deflater.finished()) {
+                if (storedLength == stored.length) {
+                    stored = Arrays.copyOf(stored, stored.length * 2);
+                }
+                storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+            }
+        }
+        writeVarLong(out, rows);
+        writeVarLong(out, storedLength);
+        writeVarLong(out, block.size);
+        out.writeInt((int) crc.getValue());
+        out.write(stored, 0, storedLength);
+        block.size = 0;
+    }
+
+    // Reads the whole file and checks every block checksum and the trailer; returns the number of rows
+    public long verify(Path path) throws IOException {
+        try (SnapshotReader reader = open(path)) {
+            long rows = 0;
+            while (reader.hasNext()) {
+                reader.next();
+                rows++;
+            }
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Streams the students in the file; a damaged block surfaces as an UncheckedIOException from the iterator
+    public SnapshotReader open(Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_SIZE));
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(path + " is not a student snapshot");
+            }
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + version + " (expected " +
+                        FORMAT_VERSION + ")");
+            }
+            int flags = in.readUnsignedByte();
+            return new SnapshotReader(in, (flags & FLAG_COMPRESSED) != 0);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    static class SnapshotReader implements Iterator<Student>, Closeable {
+        private final DataInputStream in;
+        private final Inflater inflater;
+        private Block block = new Block(0);
+        private int rowsLeftInBlock;
+        private long blocksRead;
+        private long rowsRead;
+        private boolean finished;
+
+        SnapshotReader(DataInputStream in, boolean compressed) {
+            this.in = in;
+            this.inflater = compressed ? new Inflater() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (rowsLeftInBlock == 0 && !finished) {
+                try {
+                    readBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return rowsLeftInBlock > 0;
+        }
+
+        @Override
+        public Student next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Student student = block.readStudent();
+                rowsLeftInBlock--;
+                rowsRead++;
+                if (rowsLeftInBlock == 0 && block.position != block.size) {
+                    throw corrupt("rows do not fill the block");
+                }
+                return student;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void readBlock() throws IOException {
+            long rows = readVarLong(in);
+            if (rows == 0) {
+                long expected = readVarLong(in);
+                if (expected != rowsRead) {
+                    throw new IOException("Snapshot trailer says " + expected + " rows but " + rowsRead + " were read");
+                }
+                finished = true;
+                return;
+            }
+            int storedLength = checkLength(readVarLong(in));
+            int rawLength = checkLength(readVarLong(in));
+            int expectedCrc = in.readInt();
+            byte[] stored = new byte[storedLength];
+            in.readFully(stored);
+            byte[] raw = stored;
+            if (inflater != null) {
+                raw = new byte[rawLength];
+                inflater.reset();
+                inflater.setInput(stored);
+                try {
+                    if (inflater.inflate(raw) != rawLength || !inflater.finished()) {
+                        throw corrupt("compressed length does not match");
+                    }
+                } catch (DataFormatException e) {
+                    throw corrupt(e.getMessage());
+                }
+            } else if (storedLength != rawLength) {
+                throw corrupt("stored and raw lengths differ");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, rawLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw corrupt("checksum mismatch");
+            }
+            blocksRead++;
+            block = new Block(raw, rawLength);
+            rowsLeftInBlock = (int) Math.min(Integer.MAX_VALUE, rows);
+        }
+
+        private int checkLength(long length) throws IOException {
+            if (length < 0 || length > MAX_BLOCK_SIZE) {
+                throw corrupt("block length " + length + " out of range");
+            }
+            return (int) length;
+        }
+
+        private IOException corrupt(String reason) {
+            return new IOException("Snapshot block " + (blocksRead + 1) + " is damaged: " + reason);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (inflater != null) {
+                inflater.end();
+            }
+            in.close();
+        }
+    }
+
+    // Growable byte array that rows are encoded into and decoded from
+    private static class Block {
+        private byte[] bytes;
+        private int size;
+        private int position;
+
+        Block(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        Block(byte[] bytes, int size) {
+            this.bytes = bytes;
+            this.size = size;
+        }
+
+        void writeStudent(Student student) {
+            writeVarLong(zigzag(student.getId()));
+            writeVarLong(zigzag(student.getGrade()));
+            writeString(student.getName());
+            writeString(student.getEmail());
+        }
+
+        Student readStudent() throws IOException {
+            int id = unzigzag(readVarLong());
+            int grade = unzigzag(readVarLong());
+            String name = readString();
+            String email = readString();
+            return new Student(id, name, email, grade);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1L);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        private String readString() throws IOException {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > size - position) {
+                throw new IOException("string runs past the end of the block");
+            }
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= size) {
+                    throw new IOException("varint runs past the end of the block");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint is too long");
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unzigzag(long value) {
+        int bits = (int) value;
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Snapshot is truncated");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot varint is too long");
+    }
+
+    static class Report {
+        private final long rows;
+        private final long blocks;
+        private final long rawBytes;
+        private final long bytesWritten;
+        private final boolean compressed;
+        private final long elapsedNanos;
+
+        Report(long rows, long blocks, long rawBytes, long bytesWritten, boolean compressed, long elapsedNanos) {
+            this.rows = rows;
+            this.blocks = blocks;
+            this.rawBytes = rawBytes;
+            this.bytesWritten = bytesWritten;
+            this.compressed = compressed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{rows=%d, blocks=%d, rawBytes=%d, bytesWritten=%d, compressed=%b, " +
+                    "elapsed=%d ms, rows/s=%.0f}", rows, blocks, rawBytes, bytesWritten, compressed,
+                    elapsedNanos / 1_000_000, getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+// Student counts per grade and overall, kept up to date from StudentChangeListener events
+// so reads are a copy of a few counters instead of a table scan
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+class StudentStatistics implements StudentChangeListener {
+    static final int MIN_GRADE = 1;
+    static final int MAX_GRADE = 12;
+
+    // Grade bucket of every stored student (0 for grades outside 1-12), so an update or delete knows which
+    // counter to move
+    private IntIntHashMap gradeById = new IntIntHashMap(1024);
+    private long[] countsByGrade = new long[MAX_GRADE + 1];
+    // Students stored with a grade outside 1-12 (possible through imports or direct SQL)
+    private long otherGrades;
+    // Sum of the 1-12 grades, for the mean
+    private long gradeSum;
+    private long saves;
+    private long deletes;
+    private long rebuiltAtMillis;
+
+    // Replaces all counters with a fresh pass over the repository. The pass runs without the lock (a backend may
+    // fire events while holding its own lock) and is swapped in at the end; writes made during the pass can be
+    // missed, which verify() will show.
+    public long rebuild(StudentRepository repository) {
+        StudentStatistics fresh = new StudentStatistics();
+        try (Stream<Student> students = repository.streamAllStudents()) {
+            students.forEach(fresh::add);
+        }
+        synchronized (this) {
+            gradeById = fresh.gradeById;
+            countsByGrade = fresh.countsByGrade;
+            otherGrades = fresh.otherGrades;
+            gradeSum = fresh.gradeSum;
+            rebuiltAtMillis = System.currentTimeMillis();
+            return gradeById.size();
+        }
+    }
+
+    @Override
+    public synchronized void studentSaved(Student student) {
+        saves++;
+        int bucket = bucket(student.getGrade());
+        int previous = gradeById.put(student.getId(), bucket);
+        if (previous == bucket) {
+            return;
+        }
+        if (previous != IntIntHashMap.NO_VALUE) {
+            adjust(previous, -1);
+        }
+        adjust(bucket, 1);
+    }
+
+    @Override
+    public synchronized void studentDeleted(int id) {
+        deletes++;
+        int previous = gradeById.remove(id);
+        if (previous != IntIntHashMap.NO_VALUE) {
+            adjust(previous, -1);
+        }
+    }
+
+    private void add(Student student) {
+        int bucket = bucket(student.getGrade());
+        if (gradeById.put(student.getId(), bucket) == IntIntHashMap.NO_VALUE) {
+            adjust(bucket, 1);
+        }
+    }
+
+    private static int bucket(int grade) {
+        return grade >= MIN_GRADE && grade <= MAX_GRADE ? grade : 0;
+    }
+
+    private void adjust(int bucket, int delta) {
+        if (bucket == 0) {
+            otherGrades += delta;
+        } else {
+            countsByGrade[bucket] += delta;
+            gradeSum += (long) bucket * delta;
+        }
+    }
+
+    public synchronized Snapshot getSnapshot() {
+        return new Snapshot(countsByGrade.clone(), otherGrades, gradeById.size(), gradeSum, saves, deletes,
+                rebuiltAtMillis);
+    }
+
+    // Compares the maintained counters with per-grade counts taken from the repository itself
+    public ConsistencyReport verify(StudentRepository repository) {
+        Map<Integer, Long> actual = repository.countStudentsByGrade();
+        Snapshot snapshot = getSnapshot();
+        if (actual == null) {
+            return new ConsistencyReport(snapshot, null, new TreeMap<>());
+        }
+        Map<Integer, long[]> mismatches = new TreeMap<>();
+        Map<Integer, Long> expected = snapshot.getCountsByGrade();
+        for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++) {
+            long tracked = expected.getOrDefault(grade, 0L);
+            long stored = actual.getOrDefault(grade, 0L);
+            if (tracked != stored) {
+                mismatches.put(grade, new long[]{tracked, stored});
+            }
+        }
+        long storedOther = actual.entrySet().stream()
+                .filter(entry -> entry.getKey() < MIN_GRADE || entry.getKey() > MAX_GRADE)
+                .mapToLong(Map.Entry::getValue).sum();
+        if (storedOther != snapshot.getOtherGrades()) {
+            // Reported under grade 0, which stands for "any grade outside 1-12"
+            mismatches.put(0, new long[]{snapshot.getOtherGrades(), storedOther});
+        }
+        return new ConsistencyReport(snapshot, actual, mismatches);
+    }
+
+    static class Snapshot {
+        private final long[] countsByGrade;
+        private final long otherGrades;
+        private final long total;
+        private final long gradeSum;
+        private final long saves;
+        private final long deletes;
+        private final long rebuiltAtMillis;
+
+        Snapshot(long[] countsByGrade, long otherGrades, long total, long gradeSum, long saves, long deletes,
+                 long rebuiltAtMillis) {
+            this.countsByGrade = countsByGrade;
+            this.otherGrades = otherGrades;
+            this.total = total;
+            this.gradeSum = gradeSum;
+            this.saves = saves;
+            this.deletes = deletes;
+            this.rebuiltAtMillis = rebuiltAtMillis;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getCount(int grade) {
+            return grade >= MIN_GRADE && grade <= MAX_GRADE ? countsByGrade[grade] : 0;
+        }
+
+        // Grades 1-12, including empty ones
+        public Map<Integer, Long> getCountsByGrade() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++) {
+                counts.put(grade, countsByGrade[grade]);
+            }
+            return counts;
+        }
+
+        public long getOtherGrades() {
+            return otherGrades;
+        }
+
+        // Mean over students with a grade in 1-12
+        public double getMeanGrade() {
+            long graded = total - otherGrades;
+            return graded == 0 ? 0 : (double) gradeSum / graded;
+        }
+
+        public long getSaves() {
+            return saves;
+        }
+
+        public long getDeletes() {
+            return deletes;
+        }
+
+        public long getRebuiltAtMillis() {
+            return rebuiltAtMillis;
+        }
+    }
+
+    static class ConsistencyReport {
+        private final Snapshot snapshot;
+        private final Map<Integer, Long> stored;
+        // grade -> {tracked, stored}
+        private final Map<Integer, long[]> mismatches;
+
+        ConsistencyReport(Snapshot snapshot, Map<Integer, Long> stored, Map<Integer, long[]> mismatches) {
+            this.snapshot = snapshot;
+            this.stored = stored;
+            this.mismatches = mismatches;
+        }
+
+        // False when the repository could not be queried
+        public boolean isChecked() {
+            return stored != null;
+        }
+
+        public boolean isConsistent() {
+            return stored != null && mismatches.isEmpty();
+        }
+
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public Map<Integer, long[]> getMismatches() {
+            return mismatches;
+        }
+
+        @Override
+        public String toString() {
+            if (stored == null) {
+                return "Consistency check failed: could not read counts from the repository";
+            }
+            if (mismatches.isEmpty()) {
+                return "Consistent: " + snapshot.getTotal() + " students across " + stored.size() + " grades";
+            }
+            StringBuilder text = new StringBuilder("Inconsistent:");
+            for (Map.Entry<Integer, long[]> entry : mismatches.entrySet()) {
+                text.append(entry.getKey() == 0 ? " other grades" : " grade " + entry.getKey())
+                        .append(" tracked=").append(entry.getValue()[0])
+                        .append(" stored=").append(entry.getValue()[1]).append(';');
+            }
+            return text.toString();
+        }
+    }
+}
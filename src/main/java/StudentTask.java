@@ -0,0 +1,5 @@
+// Per-student unit of work run by ProcessingEngine
+@FunctionalInterface
+interface StudentTask<R> {
+    R process(Student student) throws Exception;
+}
@@ -0,0 +1,368 @@
+// Write-behind decorator: adds and updates are buffered per student ID (last write wins) and flushed
+// to the wrapped repository in batched transactions by a background thread
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+class WriteBehindStudentRepository implements StudentRepository, AutoCloseable {
+    // A write that failed this many flushes in a row is dropped (and reported) instead of retried forever
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final StudentRepository delegate;
+    private final int batchSize;
+    private final int maxPending;
+    // Writes waiting for the next flush, and writes taken by the flush that is running now; reads check both
+    private final ConcurrentHashMap<Integer, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, PendingWrite> inFlight = new ConcurrentHashMap<>();
+    // Held for the whole of a flush, so deletes and scans never overtake a batch that is being written
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    WriteBehindStudentRepository(StudentRepository delegate, long flushIntervalMillis, int batchSize, int maxPending) {
+        if (flushIntervalMillis <= 0 || batchSize <= 0 || maxPending < batchSize) {
+            throw new IllegalArgumentException("Invalid write-behind settings: interval=" + flushIntervalMillis +
+                    " ms, batchSize=" + batchSize + ", maxPending=" + maxPending);
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "student-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static WriteBehindStudentRepository fromSystemProperties(StudentRepository delegate) {
+        return new WriteBehindStudentRepository(delegate,
+                Long.getLong("sms.writeBehind.flushIntervalMillis", 200L),
+                Integer.getInteger("sms.writeBehind.batchSize", StudentRepository.DEFAULT_BATCH_SIZE),
+                Integer.getInteger("sms.writeBehind.maxPending", 20_000));
+    }
+
+    StudentRepository getDelegate() {
+        return delegate;
+    }
+
+    // Buffered writes are applied as upserts, so an add of an existing ID or an update of a missing one
+    // behaves like a save and always returns true; the menu checks existence before either
+    @Override
+    public boolean addStudent(Student student) {
+        enqueue(student);
+        return true;
+    }
+
+    @Override
+    public boolean updateStudent(Student student) {
+        enqueue(student);
+        return true;
+    }
+
+    // The pending write is discarded and the delete goes straight through, after any flush in progress
+    @Override
+    public boolean deleteStudent(int id) {
+        flushLock.lock();
+        try {
+            boolean discarded = pending.remove(id) != null;
+            return delegate.deleteStudent(id) || discarded;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Bulk mutations flush first and run under the flush lock, so no buffered write lands on top of them later
+    @Override
+    public int updateStudents(StudentFilter filter, GradeChange change) {
+        flushLock.lock();
+        try {
+            flush();
+            return delegate.updateStudents(filter, change);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public int deleteStudents(StudentFilter filter) {
+        flushLock.lock();
+        try {
+            flush();
+            return delegate.deleteStudents(filter);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public Student getStudentById(int id) {
+        PendingWrite write = pending.get(id);
+        if (write == null) {
+            write = inFlight.get(id);
+        }
+        return write != null ? write.student : delegate.getStudentById(id);
+    }
+
+    // Bulk loads and scans flush first, so they see (and are ordered after) every buffered write
+    @Override
+    public BulkImportResult addStudents(Iterator<Student> students, int batchSize, boolean upsert) {
+        flush();
+        return delegate.addStudents(students, batchSize, upsert);
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        flush();
+        return delegate.getAllStudents();
+    }
+
+    @Override
+    public Stream<Student> streamAllStudents() {
+        flush();
+        return delegate.streamAllStudents();
+    }
+
+    @Override
+    public Stream<Student> streamStudentsByGrade(int grade) {
+        flush();
+        return delegate.streamStudentsByGrade(grade);
+    }
+
+    @Override
+    public Stream<Student> streamStudentsSortedByName() {
+        flush();
+        return delegate.streamStudentsSortedByName();
+    }
+
+    @Override
+    public Map<Integer, Long> countStudentsByGrade() {
+        flush();
+        return delegate.countStudentsByGrade();
+    }
+
+    @Override
+    public List<Student> getStudentsPage(Integer grade, Student after, int limit) {
+        flush();
+        return delegate.getStudentsPage(grade, after, limit);
+    }
+
+    // Listeners hear about writes when they reach the delegate, i.e. after the flush that stores them
+    @Override
+    public void addChangeListener(StudentChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(StudentChangeListener listener) {
+        delegate.removeChangeListener(listener);
+    }
+
+    private void enqueue(Student student) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind buffer is closed");
+        }
+        writes.increment();
+        if (pending.put(student.getId(), new PendingWrite(student, 0)) != null) {
+            coalesced.increment();
+        }
+        int depth = pending.size();
+        maxQueueDepth.accumulate(depth);
+        if (depth >= maxPending) {
+            // Backpressure: the writer pays for the flush instead of letting the buffer grow without bound
+            flush();
+        } else if (depth >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Writes everything buffered so far to the delegate and returns once it is stored
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            while (!pending.isEmpty()) {
+                flushBatch();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        List<Student> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Map.Entry<Integer, PendingWrite>> entries = pending.entrySet().iterator();
+        while (entries.hasNext() && batch.size() < batchSize) {
+            Map.Entry<Integer, PendingWrite> entry = entries.next();
+            // Published to inFlight before it leaves pending, so a read always finds it in one of the two.
+            // remove(key, value) fails if a newer write replaced this one meanwhile; that one goes in a later batch.
+            inFlight.put(entry.getKey(), entry.getValue());
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry.getValue().student);
+            } else {
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        BulkImportResult result = null;
+        try {
+            result = delegate.addStudents(batch.iterator(), batch.size(), true);
+        } catch (RuntimeException e) {
+            OperationMetrics.WRITE_BEHIND_FLUSH.recordError();
+            System.err.println("Error flushing buffered student writes: " + e.getMessage());
+        } finally {
+            OperationMetrics.WRITE_BEHIND_FLUSH.recordLatency(start);
+        }
+        flushes.increment();
+
+        int written = result == null ? 0 : result.getInserted() + result.getUpdated();
+        if (written == batch.size()) {
+            flushedRows.add(written);
+            clearInFlight(batch);
+            return;
+        }
+        // The delegate does not say which rows failed, so the whole batch is retried unless a newer write exists
+        OperationMetrics.WRITE_BEHIND_FLUSH.recordError();
+        // Requeued before it leaves inFlight, for the same reason as above
+        for (Student student : batch) {
+            PendingWrite write = inFlight.get(student.getId());
+            if (write == null) {
+                continue;
+            }
+            if (write.attempts + 1 >= MAX_ATTEMPTS) {
+                droppedRows.increment();
+                System.err.println("Error flushing student " + student.getId() + ": giving up after " +
+                        MAX_ATTEMPTS + " attempts");
+            } else {
+                pending.putIfAbsent(student.getId(), new PendingWrite(write.student, write.attempts + 1));
+            }
+            inFlight.remove(student.getId(), write);
+        }
+    }
+
+    private void clearInFlight(List<Student> batch) {
+        for (Student student : batch) {
+            inFlight.remove(student.getId());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Error in write-behind flusher: " + e.getMessage());
+        }
+    }
+
+    // Stops the flusher and drains whatever is still buffered
+    @Override
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public WriteBehindStats getStats() {
+        return new WriteBehindStats(pending.size(), inFlight.size(), maxQueueDepth.get(), writes.sum(),
+                coalesced.sum(), flushes.sum(), flushedRows.sum(), droppedRows.sum(),
+                OperationMetrics.WRITE_BEHIND_FLUSH.getMeanMicros(), OperationMetrics.WRITE_BEHIND_FLUSH.getP99Micros());
+    }
+
+    private static class PendingWrite {
+        private final Student student;
+        private final int attempts;
+
+        PendingWrite(Student student, int attempts) {
+            this.student = student;
+            this.attempts = attempts;
+        }
+    }
+
+    static class WriteBehindStats {
+        private final int queueDepth;
+        private final int inFlight;
+        private final long maxQueueDepth;
+        private final long writes;
+        private final long coalesced;
+        private final long flushes;
+        private final long flushedRows;
+        private final long droppedRows;
+        private final double meanFlushMicros;
+        private final double p99FlushMicros;
+
+        WriteBehindStats(int queueDepth, int inFlight, long maxQueueDepth, long writes, long coalesced, long flushes,
+                         long flushedRows, long droppedRows, double meanFlushMicros, double p99FlushMicros) {
+            this.queueDepth = queueDepth;
+            this.inFlight = inFlight;
+            this.maxQueueDepth = maxQueueDepth;
+            this.writes = writes;
+            this.coalesced = coalesced;
+            this.flushes = flushes;
+            this.flushedRows = flushedRows;
+            this.droppedRows = droppedRows;
+            this.meanFlushMicros = meanFlushMicros;
+            this.p99FlushMicros = p99FlushMicros;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+        public long getFlushedRows() {
+            return flushedRows;
+        }
+
+        public long getDroppedRows() {
+            return droppedRows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("WriteBehindStats{queueDepth=%d, inFlight=%d, maxQueueDepth=%d, writes=%d, " +
+                            "coalesced=%d, flushes=%d, flushedRows=%d, droppedRows=%d, flushMean=%.1f us, flushP99=%.1f us}",
+                    queueDepth, inFlight, maxQueueDepth, writes, coalesced, flushes, flushedRows, droppedRows,
+                    meanFlushMicros, p99FlushMicros);
+        }
+    }
+}